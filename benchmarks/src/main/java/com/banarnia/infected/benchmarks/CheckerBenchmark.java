@@ -0,0 +1,110 @@
+package com.banarnia.infected.benchmarks;
+
+import com.banarnia.infected.tracking.InfectionPairs;
+import com.banarnia.infected.tracking.PlayerStateTable;
+import com.banarnia.infected.tracking.PositionSnapshot;
+import com.banarnia.infected.tracking.ProximityComputer;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one run of the infection checker: capturing the positions of all players and searching the pairs.
+ * The stages are the ones the checker runs on the main thread in its default configuration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckerBenchmark {
+
+    // Deadline far in the future, so infections don't expire.
+    private static final long DEADLINE = Long.MAX_VALUE;
+
+    @Param({"50", "300", "1000"})
+    private int players;
+
+    @Param({"0.05", "0.25", "0.5"})
+    private double infectedRatio;
+
+    @Param({"3", "5", "10"})
+    private double radius;
+
+    private Population population;
+    private PositionSnapshot snapshot = new PositionSnapshot();
+    private InfectionPairs pairs = new InfectionPairs();
+    private ProximityComputer computer = new ProximityComputer();
+    private Location location;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        population = new Population(players, infectedRatio, DEADLINE, 42);
+        location = new Location(population.getWorld(), 0, 0, 0);
+    }
+
+    @Setup(Level.Iteration)
+    public void move() {
+        population.scatter();
+    }
+
+    /**
+     * Captures a snapshot and searches all pairs.
+     * @return Amount of pairs.
+     */
+    @Benchmark
+    public int checkCycle() {
+        capture();
+        computer.compute(snapshot, 0, radius, false, pairs, 0);
+        return pairs.size();
+    }
+
+    /**
+     * Searches all pairs of a snapshot that was captured before.
+     * @return Amount of pairs.
+     */
+    @Benchmark
+    public int computeOnly() {
+        if (snapshot.size() == 0)
+            capture();
+
+        pairs.clear();
+        computer.compute(snapshot, 0, radius, false, pairs, 0);
+        return pairs.size();
+    }
+
+    /**
+     * Copies all infected players as sources and all other players as targets.
+     */
+    private void capture() {
+        snapshot.reset(0);
+        pairs.clear();
+
+        PlayerStateTable table = population.getTable();
+        for (int slot = table.nextSlot(0); slot != -1; slot = table.nextSlot(slot + 1)) {
+            if (!table.hasFlag(slot, PlayerStateTable.INFECTED))
+                continue;
+
+            Player player = table.getHandle(slot);
+            player.getLocation(location);
+            snapshot.addSource(player, location.getWorld().getUID(), location.getX(), location.getY(),
+                               location.getZ(), PositionSnapshot.INFECTED | PositionSnapshot.CHANGED, 0, slot);
+        }
+
+        snapshot.addTargets(table, 0, null, location);
+    }
+}
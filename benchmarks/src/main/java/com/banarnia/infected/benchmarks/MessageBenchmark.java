@@ -0,0 +1,42 @@
+package com.banarnia.infected.benchmarks;
+
+import com.banarnia.infected.config.Message;
+import org.bukkit.ChatColor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering the infection message, compared to translating and replacing on every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+
+    private String target = "Steve";
+    private String origin = "Alex";
+
+    @Benchmark
+    public String template() {
+        return Message.PLAYER_INFECTED.replace("%target%", target, "%player%", origin);
+    }
+
+    @Benchmark
+    public String translateAndReplace() {
+        return ChatColor.translateAlternateColorCodes('&', Message.PLAYER_INFECTED.getDefaultMessage())
+                        .replace("%target%", target)
+                        .replace("%player%", origin);
+    }
+}
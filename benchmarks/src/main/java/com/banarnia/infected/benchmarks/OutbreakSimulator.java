@@ -0,0 +1,308 @@
+package com.banarnia.infected.benchmarks;
+
+import com.banarnia.infected.runnable.TickClock;
+import com.banarnia.infected.tracking.ExpiryQueue;
+import com.banarnia.infected.tracking.InfectionPairs;
+import com.banarnia.infected.tracking.PlayerStateTable;
+import com.banarnia.infected.tracking.PositionSnapshot;
+import com.banarnia.infected.tracking.ProximityComputer;
+import org.bukkit.Location;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Simulates outbreaks without a server to plan settings and hardware before big events.
+ * Every check cycle runs the stages of the infection checker against a synthetic population: expiries,
+ * capturing the positions, searching the pairs and infecting the targets.
+ * One CSV row is written per cycle with the outbreak curve and the cost of the cycle.
+ * The movement of the players is not part of the measured cost.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.banarnia.infected.benchmarks.OutbreakSimulator [options]}
+ * <pre>
+ * --config &lt;file&gt;           config.yml to read the infection values from.
+ * --players &lt;list&gt;          Comma separated population sizes. Default 100,1000,10000.
+ * --seconds &lt;n&gt;             Simulated seconds per population. Default 600.
+ * --initial-infected &lt;r&gt;    Share of players that are infected at the start. Default 0.01.
+ * --movement &lt;model&gt;        static, walk or scatter. Default walk.
+ * --speed &lt;blocks&gt;          Blocks per tick for the walk model. Default 0.2.
+ * --area-per-player &lt;n&gt;     Blocks per player. Default 64.
+ * --seed &lt;n&gt;                Seed of the population. Default 42.
+ * --out &lt;file&gt;              CSV file. Default is the standard output.
+ * </pre>
+ * cpu_micros is -1 if the JVM can't measure the CPU time of a thread.
+ */
+public class OutbreakSimulator {
+
+    // Header of the CSV output.
+    private static final String HEADER = "players,cycle,tick,susceptible,infected,protected,new_infections,pairs,"
+                                         + "cycle_micros,cpu_micros";
+
+    /**
+     * Movement of the players between two cycles.
+     */
+    public enum Movement {
+        // Players don't move.
+        STATIC,
+        // Every player walks a step into a random direction.
+        WALK,
+        // Every player is moved to a random position, e.g. like teleports.
+        SCATTER
+    }
+
+    // Values of the config.yml. The defaults are the same as in the plugin.
+    private final int infectionTime;
+    private final double infectionRadius;
+    private final int protectionTime;
+    private final int checkTime;
+
+    // Population and movement.
+    private final double initialInfected;
+    private final Movement movement;
+    private final double speed;
+    private final double areaPerPlayer;
+    private final long seed;
+
+    // Stages of the checker, reused for every population.
+    private PositionSnapshot snapshot = new PositionSnapshot();
+    private InfectionPairs pairs = new InfectionPairs();
+    private ProximityComputer computer = new ProximityComputer();
+    private ExpiryQueue infectionExpiries = new ExpiryQueue();
+    private ExpiryQueue protectionExpiries = new ExpiryQueue();
+    private Location location = new Location(null, 0, 0, 0);
+
+    // CPU time of the simulating thread, if supported.
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTime = threads.isCurrentThreadCpuTimeSupported();
+
+    // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Constructor
+     * @param config Config with the infection values. Missing values are the defaults of the plugin.
+     * @param options Options of the simulation.
+     */
+    public OutbreakSimulator(YamlConfiguration config, Map<String, String> options) {
+        this.infectionTime = config.getInt("infection-time-seconds", 60);
+        this.infectionRadius = config.getDouble("infection-radius", 5.0);
+        this.protectionTime = config.getInt("protection-time-seconds", 30);
+        this.checkTime = Math.max(1, config.getInt("infection-check-time-ticks", 20));
+
+        this.initialInfected = Double.parseDouble(options.getOrDefault("initial-infected", "0.01"));
+        this.movement = Movement.valueOf(options.getOrDefault("movement", "walk").toUpperCase(Locale.ROOT));
+        this.speed = Double.parseDouble(options.getOrDefault("speed", "0.2"));
+        this.areaPerPlayer = Double.parseDouble(options.getOrDefault("area-per-player",
+                                                                     String.valueOf(Population.AREA_PER_PLAYER)));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        if (options == null) {
+            System.err.println("Usage: OutbreakSimulator [--config <file>] [--players <list>] [--seconds <n>]"
+                               + " [--initial-infected <ratio>] [--movement static|walk|scatter] [--speed <blocks>]"
+                               + " [--area-per-player <n>] [--seed <n>] [--out <file>]");
+            System.exit(1);
+            return;
+        }
+
+        String configPath = options.get("config");
+        YamlConfiguration config = configPath != null ? YamlConfiguration.loadConfiguration(new File(configPath))
+                                                      : new YamlConfiguration();
+
+        OutbreakSimulator simulator = new OutbreakSimulator(config, options);
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "600"));
+        String outPath = options.get("out");
+
+        OutputStream stream = outPath != null ? new FileOutputStream(outPath) : System.out;
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)))) {
+            out.println(HEADER);
+            for (String players : options.getOrDefault("players", "100,1000,10000").split(","))
+                simulator.run(Integer.parseInt(players.trim()), seconds, out);
+        }
+    }
+
+    /**
+     * Reads options of the form "--name value".
+     * @return Options by name or null if the arguments are invalid.
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length)
+                return null;
+
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        return options;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Simulation ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Simulates one population until the time is up or the outbreak is over.
+     * @param playerCount Amount of players.
+     * @param seconds Simulated seconds.
+     * @param out Receives one CSV row per cycle.
+     */
+    public void run(int playerCount, int seconds, PrintWriter out) {
+        long tick = 0;
+        long infectionTicks = infectionTime * TickClock.TICKS_PER_SECOND;
+        long protectionTicks = protectionTime * TickClock.TICKS_PER_SECOND;
+
+        Population population = new Population(playerCount, initialInfected, infectionTicks, seed, areaPerPlayer);
+        PlayerStateTable table = population.getTable();
+        infectionExpiries.clear();
+        protectionExpiries.clear();
+
+        // Schedule the infections of the start.
+        for (int slot = table.nextSlot(0); slot != -1; slot = table.nextSlot(slot + 1)) {
+            if (table.hasFlag(slot, PlayerStateTable.INFECTED))
+                infectionExpiries.schedule(table.getId(slot), table.getInfectionDeadline(slot));
+        }
+
+        long cycles = seconds * TickClock.TICKS_PER_SECOND / checkTime;
+        for (long cycle = 1; cycle <= cycles; cycle++) {
+            tick += checkTime;
+            move(population);
+
+            long cpuStart = cpuTime ? threads.getCurrentThreadCpuTime() : 0;
+            long start = System.nanoTime();
+
+            handleExpiries(table, tick, protectionTicks);
+            capture(table, tick);
+            computer.compute(snapshot, 0, infectionRadius, true, pairs, 0);
+            int infected = applyPairs(table, tick, tick + infectionTicks);
+
+            long cycleNanos = System.nanoTime() - start;
+            long cpuMicros = cpuTime ? (threads.getCurrentThreadCpuTime() - cpuStart) / 1000 : -1;
+
+            int infectedCount = table.getInfectedCount();
+            int protectedCount = table.getProtectedCount();
+            out.print(playerCount);
+            out.print(',');
+            out.print(cycle);
+            out.print(',');
+            out.print(tick);
+            out.print(',');
+            out.print(playerCount - infectedCount - protectedCount);
+            out.print(',');
+            out.print(infectedCount);
+            out.print(',');
+            out.print(protectedCount);
+            out.print(',');
+            out.print(infected);
+            out.print(',');
+            out.print(pairs.size());
+            out.print(',');
+            out.print(cycleNanos / 1000);
+            out.print(',');
+            out.println(cpuMicros);
+            out.flush();
+
+            // The outbreak is over, once nobody is infected.
+            if (infectedCount == 0)
+                break;
+        }
+    }
+
+    /**
+     * Moves the players with the configured model.
+     */
+    private void move(Population population) {
+        switch (movement) {
+            case WALK:
+                population.walk(speed * checkTime);
+                break;
+            case SCATTER:
+                population.scatter();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Cures players whose infection expired and protects them. Drops protections that ran out.
+     */
+    private void handleExpiries(PlayerStateTable table, long now, long protectionTicks) {
+        while (infectionExpiries.hasDue(now)) {
+            UUID uuid = infectionExpiries.peekId();
+            long deadline = infectionExpiries.peekDeadline();
+            infectionExpiries.poll();
+
+            int slot = table.find(uuid);
+            if (slot == -1 || table.getInfectionDeadline(slot, 0) != deadline)
+                continue;
+
+            table.clearInfection(slot);
+            table.setProtection(slot, now + protectionTicks);
+            protectionExpiries.schedule(uuid, now + protectionTicks);
+        }
+
+        while (protectionExpiries.hasDue(now)) {
+            UUID uuid = protectionExpiries.peekId();
+            long deadline = protectionExpiries.peekDeadline();
+            protectionExpiries.poll();
+
+            int slot = table.find(uuid);
+            if (slot != -1 && table.getProtectionDeadline(slot, 0) == deadline)
+                table.clearProtection(slot);
+        }
+    }
+
+    /**
+     * Copies all infected players as sources and all players that can get infected as targets.
+     */
+    private void capture(PlayerStateTable table, long now) {
+        snapshot.reset(now);
+        pairs.clear();
+
+        for (int slot = table.nextSlot(0); slot != -1; slot = table.nextSlot(slot + 1)) {
+            if (!table.hasFlag(slot, PlayerStateTable.INFECTED))
+                continue;
+
+            Player player = table.getHandle(slot);
+            player.getLocation(location);
+            snapshot.addSource(player, location.getWorld().getUID(), location.getX(), location.getY(), location.getZ(),
+                               PositionSnapshot.INFECTED | PositionSnapshot.ON_GROUND | PositionSnapshot.CHANGED, 0, slot);
+        }
+
+        snapshot.addTargets(table, now, null, location);
+    }
+
+    /**
+     * Infects the target of every pair, unless another pair of this cycle infected him already.
+     * @return Amount of new infections.
+     */
+    private int applyPairs(PlayerStateTable table, long now, long deadline) {
+        int infected = 0;
+        for (int i = 0; i < pairs.size(); i++) {
+            UUID uuid = snapshot.getPlayer(pairs.getTarget(i)).getUniqueId();
+            int slot = table.find(uuid);
+            if (slot == -1 || table.getInfectedStrains(slot, now) != 0)
+                continue;
+
+            table.setInfection(slot, deadline);
+            infectionExpiries.schedule(uuid, deadline);
+            infected++;
+        }
+
+        return infected;
+    }
+}
@@ -0,0 +1,104 @@
+package com.banarnia.infected.benchmarks;
+
+import com.banarnia.infected.tracking.PlayerStateTable;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Online players scattered over one world, registered in a state table like on a live server.
+ */
+public class Population {
+
+    // Blocks per player. Roughly the density of a busy spawn area.
+    public static final double AREA_PER_PLAYER = 64.0;
+
+    private final World world = StandIns.world("world");
+    private final StandIns.PlayerState[] states;
+    private final Player[] players;
+    private final PlayerStateTable table;
+    private final double size;
+    private final Random random;
+
+    /**
+     * Constructor
+     * @param playerCount Amount of online players.
+     * @param infectedRatio Share of infected players between 0 and 1.
+     * @param infectionDeadline Tick when the infections expire.
+     * @param seed Seed for the positions.
+     */
+    public Population(int playerCount, double infectedRatio, long infectionDeadline, long seed) {
+        this(playerCount, infectedRatio, infectionDeadline, seed, AREA_PER_PLAYER);
+    }
+
+    /**
+     * Constructor
+     * @param playerCount Amount of online players.
+     * @param infectedRatio Share of infected players between 0 and 1.
+     * @param infectionDeadline Tick when the infections expire.
+     * @param seed Seed for the positions.
+     * @param areaPerPlayer Blocks per player. Sets the density of the population.
+     */
+    public Population(int playerCount, double infectedRatio, long infectionDeadline, long seed, double areaPerPlayer) {
+        this.states = new StandIns.PlayerState[playerCount];
+        this.players = new Player[playerCount];
+        this.table = new PlayerStateTable(playerCount);
+        this.size = Math.sqrt(playerCount * areaPerPlayer);
+        this.random = new Random(seed);
+
+        int infected = (int) Math.round(playerCount * infectedRatio);
+        for (int i = 0; i < playerCount; i++) {
+            StandIns.PlayerState state = new StandIns.PlayerState(new UUID(seed, i), "Player" + i, world);
+            states[i] = state;
+            players[i] = StandIns.player(state);
+
+            int slot = table.findOrCreate(state.getUniqueId());
+            table.setHandle(slot, players[i]);
+            if (i < infected)
+                table.setInfection(slot, infectionDeadline);
+        }
+
+        scatter();
+    }
+
+    /**
+     * Moves every player to a random position.
+     */
+    public void scatter() {
+        for (StandIns.PlayerState state : states)
+            state.moveTo(random.nextDouble() * size, 64, random.nextDouble() * size);
+    }
+
+    /**
+     * Moves every player a step into a random direction. Players don't leave the area.
+     * @param step Blocks every player moves.
+     */
+    public void walk(double step) {
+        for (StandIns.PlayerState state : states) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double x = Math.min(size, Math.max(0, state.getX() + Math.cos(angle) * step));
+            double z = Math.min(size, Math.max(0, state.getZ() + Math.sin(angle) * step));
+            state.moveTo(x, 64, z);
+        }
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public int size() {
+        return players.length;
+    }
+
+    public Player getPlayer(int index) {
+        return players[index];
+    }
+
+    public PlayerStateTable getTable() {
+        return table;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+}
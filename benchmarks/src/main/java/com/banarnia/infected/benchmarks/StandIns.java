@@ -0,0 +1,172 @@
+package com.banarnia.infected.benchmarks;
+
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+/**
+ * Lightweight stand-ins for the parts of the server that are used by the hot path.
+ * They are backed by plain fields, so benchmarks measure the plugin and not a server.
+ */
+public final class StandIns {
+
+    private StandIns() {}
+
+    /**
+     * Creates a world.
+     * @param name Name of the world.
+     * @return World stand-in.
+     */
+    public static World world(String name) {
+        UUID uid = UUID.nameUUIDFromBytes(name.getBytes());
+
+        return proxy(World.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUID":
+                    return uid;
+                case "getName":
+                    return name;
+                default:
+                    return common(proxy, method, args, name);
+            }
+        });
+    }
+
+    /**
+     * Creates a player.
+     * @param state Fields that back the player.
+     * @return Player stand-in.
+     */
+    public static Player player(PlayerState state) {
+        return proxy(Player.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return state.uuid;
+                case "getName":
+                    return state.name;
+                case "isOnline":
+                    return true;
+                case "isOnGround":
+                    return state.onGround;
+                case "getGameMode":
+                    return state.gameMode;
+                case "getWorld":
+                    return state.world;
+                case "getLocation":
+                    if (args == null || args.length == 0 || args[0] == null)
+                        return new Location(state.world, state.x, state.y, state.z);
+
+                    Location location = (Location) args[0];
+                    location.setWorld(state.world);
+                    location.setX(state.x);
+                    location.setY(state.y);
+                    location.setZ(state.z);
+                    return location;
+                default:
+                    return common(proxy, method, args, state.name);
+            }
+        });
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Internal ~~~~~~~~~~~~~~~~~~~~
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StandIns.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    /**
+     * Answers the methods of Object and returns default values for everything else.
+     */
+    private static Object common(Object proxy, Method method, Object[] args, String name) {
+        switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return name;
+        }
+
+        Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class)
+            return null;
+        if (type == boolean.class)
+            return false;
+        if (type == char.class)
+            return '\0';
+        if (type == byte.class)
+            return (byte) 0;
+        if (type == short.class)
+            return (short) 0;
+        if (type == int.class)
+            return 0;
+        if (type == long.class)
+            return 0L;
+        if (type == float.class)
+            return 0f;
+
+        return 0d;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Player state ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Mutable fields behind a player stand-in.
+     */
+    public static class PlayerState {
+
+        private final UUID uuid;
+        private final String name;
+        private World world;
+        private double x;
+        private double y;
+        private double z;
+        private boolean onGround = true;
+        private GameMode gameMode = GameMode.SURVIVAL;
+
+        /**
+         * Constructor
+         * @param uuid UUID of the player.
+         * @param name Name of the player.
+         * @param world World of the player.
+         */
+        public PlayerState(UUID uuid, String name, World world) {
+            this.uuid = uuid;
+            this.name = name;
+            this.world = world;
+        }
+
+        public void moveTo(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        public void setOnGround(boolean onGround) {
+            this.onGround = onGround;
+        }
+
+        public void setGameMode(GameMode gameMode) {
+            this.gameMode = gameMode;
+        }
+
+        public UUID getUniqueId() {
+            return uuid;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getZ() {
+            return z;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.banarnia.infected.benchmarks;
+
+import com.banarnia.infected.tracking.ExpiryQueue;
+import com.banarnia.infected.tracking.PlayerStateTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the state updates of infect and cure and the expiry handling for a whole population.
+ * Every operation does what the manager does while it holds the lock on the state table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateBenchmark {
+
+    // Infection and protection time in ticks.
+    private static final long INFECTION_TICKS = 60 * 20;
+    private static final long PROTECTION_TICKS = 30 * 20;
+
+    @Param({"50", "300", "1000"})
+    private int players;
+
+    private Population population;
+    private UUID[] ids;
+    private ExpiryQueue infectionExpiries = new ExpiryQueue();
+    private ExpiryQueue protectionExpiries = new ExpiryQueue();
+    private long tick;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        population = new Population(players, 0, 0, 42);
+        ids = new UUID[players];
+        for (int i = 0; i < players; i++)
+            ids[i] = population.getPlayer(i).getUniqueId();
+
+        infectionExpiries.clear();
+        protectionExpiries.clear();
+        tick = 0;
+    }
+
+    /**
+     * Infects every player and cures him again.
+     * @return Amount of protected players.
+     */
+    @Benchmark
+    public int infectAndCureAll() {
+        PlayerStateTable table = population.getTable();
+        tick++;
+
+        synchronized (table) {
+            for (UUID id : ids) {
+                int slot = table.findOrCreate(id);
+                table.setInfection(slot, tick + INFECTION_TICKS);
+                table.clearProtection(slot);
+                infectionExpiries.schedule(id, tick + INFECTION_TICKS);
+            }
+
+            for (UUID id : ids) {
+                int slot = table.findOrCreate(id);
+                table.setProtection(slot, tick + PROTECTION_TICKS);
+                protectionExpiries.schedule(id, tick + PROTECTION_TICKS);
+                table.clearInfection(slot);
+            }
+
+            // Drop the outdated entries, like the checker does when they are due.
+            while (infectionExpiries.hasDue(Long.MAX_VALUE))
+                infectionExpiries.poll();
+            while (protectionExpiries.hasDue(Long.MAX_VALUE))
+                protectionExpiries.poll();
+        }
+
+        return table.getProtectedCount();
+    }
+
+    /**
+     * Looks up the state of every player, like isInfected does.
+     * @return Amount of infected players.
+     */
+    @Benchmark
+    public int lookupAll() {
+        PlayerStateTable table = population.getTable();
+        int infected = 0;
+
+        synchronized (table) {
+            for (UUID id : ids) {
+                int slot = table.find(id);
+                if (slot != -1 && table.hasFlag(slot, PlayerStateTable.INFECTED) && table.getInfectionDeadline(slot) > tick)
+                    infected++;
+            }
+        }
+
+        return infected;
+    }
+}
@@ -1,18 +1,54 @@
 package com.banarnia.infected;
 
+import com.banarnia.infected.api.messages.IMessage;
+import com.banarnia.infected.api.messages.MessageHandler;
+import com.banarnia.infected.api.messages.MessageTemplate;
 import com.banarnia.infected.commands.InfectedCommand;
 import com.banarnia.infected.events.InfectionCuredEvent;
 import com.banarnia.infected.config.Config;
+import com.banarnia.infected.config.ConfigSnapshot;
+import com.banarnia.infected.config.ConfigWatcher;
+import com.banarnia.infected.config.Strain;
+import com.banarnia.infected.config.StrainRegistry;
+import com.banarnia.infected.events.InfectionBatchEvent;
 import com.banarnia.infected.events.InfectionEvent;
+import com.banarnia.infected.jfr.FlightEvents;
+import com.banarnia.infected.listener.EntityListener;
 import com.banarnia.infected.listener.InfectionListener;
+import com.banarnia.infected.metrics.InfectionMetrics;
+import com.banarnia.infected.persistence.InfectionJournal;
+import com.banarnia.infected.persistence.JournalRecord;
+import com.banarnia.infected.persistence.SavedState;
+import com.banarnia.infected.runnable.CheckScheduler;
 import com.banarnia.infected.runnable.InfectionChecker;
-import com.google.common.collect.Maps;
+import com.banarnia.infected.runnable.TickClock;
+import com.banarnia.infected.session.InfectionSession;
+import com.banarnia.infected.tracking.ContactTrace;
+import com.banarnia.infected.tracking.MovementTracker;
+import com.banarnia.infected.tracking.PlayerStateTable;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
+import org.bukkit.World;
+import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.potion.PotionEffect;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 
 /**
  * This class handles everything about the infection.
@@ -25,14 +61,49 @@ public class InfectionManager {
     // Config instance
     private Config config;
 
-    // Map of protected players. Contains UUID and time when protection expires.
-    private HashMap<UUID, Long> protectedPlayers = Maps.newHashMap();
+    // Players that are not in any other session. Only its state is persisted.
+    // The state of every session is synchronized on its table, because region threads may update it concurrently.
+    private InfectionSession global = new InfectionSession(InfectionSession.GLOBAL_NAME, null);
 
-    // List of infected players. Contains UUID and time when infection expires.
-    private HashMap<UUID, Long> infectedPlayers = Maps.newHashMap();
+    // Sessions by lower case name and by world.
+    private Map<String, InfectionSession> sessions = new ConcurrentHashMap<>();
+    private Map<UUID, InfectionSession> sessionsByWorld = new ConcurrentHashMap<>();
 
-    // Runnable
-    private InfectionChecker infectionChecker;
+    // Session of every player that takes part in a session. Players that are not in the map belong to the global session.
+    private Map<UUID, InfectionSession> participants = new ConcurrentHashMap<>();
+
+    // Clock that is sampled once per tick. All deadlines are tick numbers of this clock.
+    private TickClock clock = new TickClock();
+
+    // Remaining infection and protection of players that are offline. Guarded by the state table of the global session.
+    private Map<UUID, SavedState> savedStates = new HashMap<>();
+
+    // Journal that keeps the state across restarts. Null if persistence is disabled.
+    // Records are queued while holding the lock on the global state table, so they are written in order.
+    private InfectionJournal journal;
+    private CheckScheduler journalScheduler;
+    private int journalRuns;
+
+    // Scheduler for tasks that have to run on the main thread.
+    private CheckScheduler scheduler;
+
+    // Applies changes of the config files without a reload command. Null if disabled.
+    private ConfigWatcher watcher;
+
+    // Players that moved or changed their state since their last check.
+    private MovementTracker movementTracker = new MovementTracker();
+
+    // Infections of mobs.
+    private MobInfections mobs = new MobInfections(this);
+
+    // Players that were close to an infected player. Null if disabled.
+    private volatile ContactTrace trace;
+
+    // Runtime metrics
+    private InfectionMetrics metrics = new InfectionMetrics();
+
+    // Listener
+    private InfectionListener listener;
 
     // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
 
@@ -44,16 +115,37 @@ public class InfectionManager {
     public InfectionManager(Main plugin, Config config) {
         this.plugin = plugin;
         this.config = config;
-        this.infectionChecker = new InfectionChecker(this);
+        this.global.setChecker(new InfectionChecker(this, global));
+        this.scheduler = CheckScheduler.create(plugin);
+
+        // Start clock before any deadline is set.
+        clock.start(plugin);
+
+        // Load saved states in the background.
+        if (config.persistenceEnabled()) {
+            setupJournal();
+            warnIfStrainsNotPersisted();
+        }
+
+        // Index players that are already online, e.g. after a reload. Their effects are changed on their own thread.
+        Bukkit.getOnlinePlayers().forEach(player -> scheduler.runFor(player, () -> handleJoin(player)));
 
         // Setup
+        setupTrace();
         setupInfectionChecker();
+        setupWatcher();
 
         // Command Setup
         plugin.getCommandManager().registerCommand(new InfectedCommand(this));
 
         // Register Listener
-        Bukkit.getPluginManager().registerEvents(new InfectionListener(this), plugin);
+        this.listener = new InfectionListener(this);
+        Bukkit.getPluginManager().registerEvents(listener, plugin);
+        Bukkit.getPluginManager().registerEvents(new EntityListener(this), plugin);
+
+        // Index mobs that are already loaded.
+        warnIfMobsUnsupported();
+        mobs.rebuildIndex();
     }
 
     // ~~~~~~~~~~~~~~~~~~~~ Runnable Setup ~~~~~~~~~~~~~~~~~~~~
@@ -62,37 +154,604 @@ public class InfectionManager {
      * Restarts the runnable to check for new infections.
      */
     public void setupInfectionChecker() {
-        this.infectionChecker.restart();
+        this.movementTracker.setThreshold(config.getMovementThreshold());
+        this.global.getChecker().restart();
+        sessions.values().forEach(session -> session.getChecker().restart());
+    }
+
+    /**
+     * Reloads config and messages on a background thread and applies them on the main thread.
+     * The checker is only restarted if the timing of the checks changed.
+     * @param callback Called on the main thread once the reload is done. Receives the error, if it failed.
+     */
+    public void reloadConfig(Consumer<Throwable> callback) {
+        reload(null, callback);
+    }
+
+    /**
+     * Reloads the given files on a background thread and applies the values that changed on the main thread.
+     * @param fileNames Names of the files that changed. Null for all files.
+     * @param callback Called on the main thread once the reload is done. Receives the error, if it failed.
+     */
+    private void reload(Set<String> fileNames, Consumer<Throwable> callback) {
+        MessageHandler messageHandler = plugin.getMessageHandler();
+        boolean settingsChanged = fileNames == null || fileNames.contains(config.getFileLoader().getFile().getName());
+
+        // Parse the files in the background.
+        CompletableFuture<ConfigSnapshot> settings = settingsChanged
+                                                     ? config.loadAsync()
+                                                     : CompletableFuture.completedFuture(config.getSnapshot());
+        CompletableFuture<Map<Class<? extends IMessage>, MessageTemplate[]>> messages =
+                settings.thenApply(loaded -> messageHandler.compileFiles(fileNames));
+
+        messages.whenComplete((templates, error) -> scheduler.runSync(() -> {
+            if (error != null) {
+                callback.accept(error);
+                return;
+            }
+
+            // Publish new values at once.
+            ConfigSnapshot next = settings.join();
+            ConfigSnapshot previous = config.publish(next);
+            List<String> changedKeys = next.getChangedKeys(previous);
+            int changedMessages = messageHandler.countChanges(templates);
+            messageHandler.apply(templates);
+
+            // Only apply what changed.
+            movementTracker.setThreshold(next.getMovementThreshold());
+            if (next.changesCheckTiming(previous)) {
+                global.getChecker().restart();
+                sessions.values().forEach(session -> session.getChecker().restart());
+            }
+            if (changedKeys.contains("hot-reload-enabled") || changedKeys.contains("hot-reload-delay-millis"))
+                setupWatcher();
+            if (changedKeys.contains("mob-infection-enabled") || changedKeys.contains("mob-infection-types")) {
+                warnIfMobsUnsupported();
+                mobs.rebuildIndex();
+            }
+            if (changedKeys.stream().anyMatch(key -> key.startsWith("contact-trace-")))
+                setupTrace();
+            if (journal != null && changedKeys.contains("strains"))
+                warnIfStrainsNotPersisted();
+
+            if (!changedKeys.isEmpty() || changedMessages > 0)
+                plugin.getLogger().info("Applied changed config values " + changedKeys + " and " + changedMessages + " changed messages.");
+
+            callback.accept(null);
+        }));
+    }
+
+    /**
+     * Starts watching the config files, if hot reload is enabled. A running watcher is stopped first.
+     */
+    private void setupWatcher() {
+        if (watcher != null)
+            watcher.stop();
+        watcher = null;
+
+        if (!config.hotReloadEnabled())
+            return;
+
+        // Watch every file in the data folder.
+        File folder = plugin.getDataFolder();
+        Set<String> fileNames = new HashSet<>();
+        fileNames.add(config.getFileLoader().getFile().getName());
+        plugin.getMessageHandler().getFiles().stream()
+              .filter(file -> folder.equals(file.getParentFile()))
+              .forEach(file -> fileNames.add(file.getName()));
+
+        watcher = new ConfigWatcher(folder.toPath(), fileNames, config.getHotReloadDelay(), changed -> reload(changed, error -> {
+            if (error != null)
+                plugin.getLogger().log(Level.SEVERE, "Could not apply the changed config files " + changed + ".", error);
+        }), plugin.getLogger());
+
+        if (!watcher.start())
+            watcher = null;
+    }
+
+    /**
+     * Creates an empty contact trace, if it is enabled. Records of the old trace are dropped.
+     */
+    private void setupTrace() {
+        ConfigSnapshot settings = config.getSnapshot();
+        trace = settings.contactTraceEnabled()
+                ? new ContactTrace(settings.getContactTraceCapacity(),
+                                   settings.getContactTraceWindow() * TickClock.TICKS_PER_SECOND)
+                : null;
+    }
+
+    /**
+     * Stops the runnable and its worker thread.
+     */
+    public void shutdown() {
+        this.global.getChecker().shutdown();
+        sessions.values().forEach(session -> session.getChecker().shutdown());
+
+        if (watcher != null)
+            watcher.stop();
+
+        // Write the final state.
+        if (journal != null) {
+            journalScheduler.stop();
+            synchronized (global.getStates()) {
+                journal.compact(captureJournal());
+            }
+            journal.close();
+        }
+
+        this.clock.stop();
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Persistence ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Opens the journal, restores saved states and writes the clock every second.
+     */
+    private void setupJournal() {
+        journal = new InfectionJournal(new File(plugin.getDataFolder(), "data"), plugin.getLogger());
+        journalScheduler = CheckScheduler.create(plugin);
+
+        journal.load(loaded -> scheduler.runSync(() -> {
+            synchronized (global.getStates()) {
+                loaded.forEach(savedStates::putIfAbsent);
+            }
+
+            // Restore players of the global session that joined while loading.
+            Bukkit.getOnlinePlayers().forEach(player -> scheduler.runFor(player, () -> {
+                if (sessionOf(player.getUniqueId()).isGlobal())
+                    restore(player);
+            }));
+        }));
+
+        journalScheduler.start(this::persist, TickClock.TICKS_PER_SECOND);
+    }
+
+    /**
+     * Tells operators that only the default strain survives a restart.
+     */
+    private void warnIfStrainsNotPersisted() {
+        if (config.getSnapshot().getStrains().getNames().size() > 1)
+            plugin.getLogger().warning("Only the default strain is kept by the persistence. "
+                                       + "Infections and protections of other strains are lost on restart.");
+    }
+
+    /**
+     * Writes the clock and forces the records of the last second to the disk.
+     * Compacts the journal from time to time and drops saved states of players that didn't come back.
+     */
+    private void persist() {
+        synchronized (global.getStates()) {
+            if (++journalRuns >= Math.max(1, config.getSnapshotInterval())) {
+                journalRuns = 0;
+                pruneSavedStates();
+                journal.compact(captureJournal());
+            } else {
+                journal.append(JournalRecord.clock(clock.getTick()));
+                journal.sync();
+            }
+        }
+    }
+
+    /**
+     * Drops saved states that are older than the configured expiry. Call while holding the lock on the global state table.
+     * The next snapshot doesn't contain them anymore.
+     */
+    private void pruneSavedStates() {
+        long expiry = config.getSuspendExpiry() * 3600000L;
+        if (expiry <= 0)
+            return;
+
+        long oldest = System.currentTimeMillis() - expiry;
+        savedStates.values().removeIf(state -> state.getSavedAt() < oldest);
+    }
+
+    /**
+     * Describes the complete state with as few records as possible. Call while holding the lock on the global state table.
+     * Only the default strain of the global session is persisted.
+     */
+    private List<JournalRecord> captureJournal() {
+        PlayerStateTable states = global.getStates();
+        List<JournalRecord> records = new ArrayList<>(states.size() + savedStates.size() * 2 + 1);
+
+        for (int slot = states.nextSlot(0); slot != -1; slot = states.nextSlot(slot + 1)) {
+            if ((states.getInfectedStrains(slot) & 1L) != 0)
+                records.add(JournalRecord.infection(states.getId(slot), states.getInfectionDeadline(slot, 0)));
+            if ((states.getProtectedStrains(slot) & 1L) != 0)
+                records.add(JournalRecord.protection(states.getId(slot), states.getProtectionDeadline(slot, 0)));
+        }
+
+        savedStates.forEach((id, state) -> {
+            records.add(JournalRecord.suspended(id, state));
+            records.add(JournalRecord.suspendedSince(id, state));
+        });
+        records.add(JournalRecord.clock(clock.getTick()));
+
+        return records;
+    }
+
+    /**
+     * Gives a player the infection and protection back that he had when he left.
+     * @param player Player that is online and in the global session.
+     */
+    private void restore(Player player) {
+        UUID uuid = player.getUniqueId();
+        PlayerStateTable states = global.getStates();
+        boolean infected;
+
+        synchronized (states) {
+            SavedState saved = savedStates.remove(uuid);
+            if (saved == null)
+                return;
+
+            if (journal != null)
+                journal.append(JournalRecord.removed(uuid));
+
+            // Saved states only contain the default strain.
+            int slot = states.findOrCreate(uuid);
+            if (saved.getInfectionTicks() > 0 && (states.getInfectedStrains(slot) & 1L) == 0) {
+                long deadline = clock.getTick() + saved.getInfectionTicks();
+                states.setInfection(slot, deadline);
+                global.infectionQueue(0).schedule(uuid, deadline);
+                if (journal != null)
+                    journal.append(JournalRecord.infection(uuid, deadline));
+            }
+
+            if (saved.getProtectionTicks() > 0 && (states.getProtectedStrains(slot) & 1L) == 0) {
+                long deadline = clock.getTick() + saved.getProtectionTicks();
+                states.setProtection(slot, deadline);
+                global.protectionQueue(0).schedule(uuid, deadline);
+                if (journal != null)
+                    journal.append(JournalRecord.protection(uuid, deadline));
+            }
+
+            infected = (states.getInfectedStrains(slot) & 1L) != 0;
+        }
+        movementTracker.markChanged(player);
+
+        // Effects and glow of the infection.
+        if (infected) {
+            ConfigSnapshot settings = config.getSnapshot();
+            for (PotionEffect effect : settings.getEffects())
+                player.addPotionEffect(effect);
+            if (settings.glowEnabled())
+                player.setGlowing(true);
+        }
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Online players ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Stores the handle of a player that joined. He joins the session of his world.
+     * @param player Player that joined.
+     */
+    public void handleJoin(Player player) {
+        join(player, sessionsByWorld.getOrDefault(player.getWorld().getUID(), global));
+    }
+
+    /**
+     * Removes everything that is stored about a player that left.
+     * If enabled, the remaining infection and protection of the default strain are kept until he rejoins.
+     * @param player Player that left.
+     */
+    public void handleQuit(Player player) {
+        leave(player, sessionOf(player.getUniqueId()));
+        movementTracker.remove(player.getUniqueId());
+    }
+
+    /**
+     * Moves a player to the session of the world he is in now.
+     * He loses the effects of his old session, like he left the server and joined again.
+     * @param player Player that changed the world.
+     */
+    public void handleWorldChange(Player player) {
+        InfectionSession next = sessionsByWorld.getOrDefault(player.getWorld().getUID(), global);
+        if (sessionOf(player.getUniqueId()) != next)
+            moveTo(player, next);
+    }
+
+    /**
+     * Adds a player to a session. Players of the global session get back what they had when they left.
+     */
+    private void join(Player player, InfectionSession session) {
+        if (!session.isGlobal())
+            participants.put(player.getUniqueId(), session);
+
+        PlayerStateTable states = session.getStates();
+        synchronized (states) {
+            states.setHandle(states.findOrCreate(player.getUniqueId()), player);
+        }
+        movementTracker.markChanged(player);
+
+        // Give back what he had when he left.
+        if (session.isGlobal())
+            restore(player);
+    }
+
+    /**
+     * Removes a player from a session. Only the global session keeps the remaining time.
+     */
+    private void leave(Player player, InfectionSession session) {
+        UUID uuid = player.getUniqueId();
+        PlayerStateTable states = session.getStates();
+
+        synchronized (states) {
+            int slot = states.find(uuid);
+            if (slot != -1) {
+                long tick = clock.getTick();
+                SavedState saved = null;
+
+                if (session.isGlobal() && config.suspendOnQuitEnabled()) {
+                    long infection = (states.getInfectedStrains(slot) & 1L) != 0 ? states.getInfectionDeadline(slot, 0) - tick : 0;
+                    long protection = (states.getProtectedStrains(slot) & 1L) != 0 ? states.getProtectionDeadline(slot, 0) - tick : 0;
+                    saved = new SavedState(infection, protection);
+                }
+
+                if (saved != null && !saved.isEmpty()) {
+                    savedStates.put(uuid, saved);
+                    if (journal != null) {
+                        journal.append(JournalRecord.suspended(uuid, saved));
+                        journal.append(JournalRecord.suspendedSince(uuid, saved));
+                    }
+                } else if (persisted(session) && states.hasFlag(slot, PlayerStateTable.INFECTED | PlayerStateTable.PROTECTED)) {
+                    journal.append(JournalRecord.removed(uuid));
+                }
+
+                states.remove(slot);
+            }
+        }
+        participants.remove(uuid, session);
+    }
+
+    /**
+     * Moves a player from his session to another one and removes the effects of the strains he carried.
+     */
+    private void moveTo(Player player, InfectionSession next) {
+        InfectionSession session = sessionOf(player.getUniqueId());
+        StrainRegistry strains = getStrains(session);
+        long carried = getInfectedStrains(player);
+
+        leave(player, session);
+        for (long bits = carried; bits != 0; bits &= bits - 1) {
+            Strain strain = strains.get(Long.numberOfTrailingZeros(bits));
+            if (strain == null)
+                continue;
+
+            for (PotionEffect effect : strain.getEffects())
+                player.removePotionEffect(effect.getType());
+        }
+        if (carried != 0)
+            player.setGlowing(false);
+
+        join(player, next);
+    }
+
+    /**
+     * Get the handle of an online player without asking the server.
+     * @param uuid UUID of the player.
+     * @return Online player or null if he is not online.
+     */
+    public Player getOnlinePlayer(UUID uuid) {
+        PlayerStateTable states = sessionOf(uuid).getStates();
+        synchronized (states) {
+            int slot = states.find(uuid);
+            return slot != -1 ? states.getHandle(slot) : null;
+        }
     }
 
     // ~~~~~~~~~~~~~~~~~~~~ Infection ~~~~~~~~~~~~~~~~~~~~
 
     /**
-     * Get the timestamp when the infection of the player ends.
+     * Get the tick when the last infection of the player ends.
+     * @param player Player that is probably infected.
+     * @return Tick when infection ends or 0 if the player is not infected.
+     */
+    public long getInfectionDeadline(Player player) {
+        PlayerStateTable states = sessionOf(player.getUniqueId()).getStates();
+        synchronized (states) {
+            int slot = states.find(player.getUniqueId());
+            return slot != -1 && states.hasFlag(slot, PlayerStateTable.INFECTED) ? states.getInfectionDeadline(slot) : 0L;
+        }
+    }
+
+    /**
+     * Get the tick when the infection of the player with a strain ends.
+     * @param player Player that is probably infected.
+     * @param strain Index of the strain.
+     * @return Tick when infection ends or 0 if the player is not infected with the strain.
+     */
+    public long getInfectionDeadline(Player player, int strain) {
+        PlayerStateTable states = sessionOf(player.getUniqueId()).getStates();
+        synchronized (states) {
+            int slot = states.find(player.getUniqueId());
+            return slot != -1 ? states.getInfectionDeadline(slot, strain) : 0L;
+        }
+    }
+
+    /**
+     * Get the timestamp when the infection of the player ends. Only meant for display.
      * @param player Player that is probably infected.
      * @return Timestamp when infection ends or 0 if the player is not infected.
      */
     public long getInfectionExpireTimestamp(Player player) {
-        return infectedPlayers.getOrDefault(player.getUniqueId(), 0L);
+        long deadline = getInfectionDeadline(player);
+        return deadline != 0 ? clock.toMillis(deadline) : 0L;
     }
 
     /**
      * Check the map if a player is infected or not.
      * @param player Player to be checked.
-     * @return Yes if the player is infected, else false.
+     * @return Yes if the player is infected with any strain, else false.
      */
     public boolean isInfected(Player player) {
-        return getInfectionExpireTimestamp(player) > System.currentTimeMillis();
+        return getInfectionDeadline(player) > clock.getTick();
+    }
+
+    /**
+     * Check if a player is infected with a strain.
+     * @param player Player to be checked.
+     * @param strain Strain to check.
+     * @return True if the player is infected with the strain.
+     */
+    public boolean isInfected(Player player, Strain strain) {
+        return getInfectionDeadline(player, strain.getIndex()) > clock.getTick();
+    }
+
+    /**
+     * Get the strains a player is infected with right now.
+     * @param player Player to be checked.
+     * @return Bits of the strains or 0 if the player is not infected.
+     */
+    public long getInfectedStrains(Player player) {
+        PlayerStateTable states = sessionOf(player.getUniqueId()).getStates();
+        synchronized (states) {
+            int slot = states.find(player.getUniqueId());
+            return slot != -1 ? states.getInfectedStrains(slot, clock.getTick()) : 0L;
+        }
+    }
+
+    /**
+     * Infects a player with the default strain giving him all PotionEffects.
+     * @param target Player that gets infected.
+     * @param origin Player or mob that had the infection.
+     */
+    public boolean infect(Player target, LivingEntity origin, InfectionEvent.Cause cause) {
+        return infect(target, origin, getStrains(target).getDefault(), cause);
     }
 
     /**
-     * Infects a player giving him all PotionEffects.
+     * Infects a player with the default strain giving him all PotionEffects.
      * @param target Player that gets infected.
      * @param origin Player that had the infection.
      */
     public boolean infect(Player target, Player origin, InfectionEvent.Cause cause) {
+        return infect(target, (LivingEntity) origin, cause);
+    }
+
+    /**
+     * Infects a player with a strain giving him all PotionEffects of the strain.
+     * @param target Player that gets infected.
+     * @param origin Player or mob that had the infection.
+     * @param strain Strain of the infection.
+     */
+    public boolean infect(Player target, LivingEntity origin, Strain strain, InfectionEvent.Cause cause) {
+        // Check if player can get infected.
+        if (!canInfect(target, strain))
+            return false;
+
+        // Record the infection including the event dispatch.
+        Object record = FlightEvents.beginInfection();
+
+        // Throw event. Skip it, if only this plugin listens to it.
+        boolean dispatch = !onlyOwnListeners(InfectionEvent.getHandlerList());
+        if (dispatch) {
+            InfectionEvent event = new InfectionEvent(target, origin, strain, cause);
+            long start = System.nanoTime();
+            event.callEvent();
+            metrics.recordDispatch(System.nanoTime() - start);
+
+            // Return false, if event was cancelled.
+            if (event.isCancelled())
+                return false;
+        }
+
+        // Add to list of infected players.
+        // Check again, because another region may have infected the player while the event was running.
+        int index = strain.getIndex();
+        long deadline = clock.inSeconds(strain.getInfectionTime());
+        InfectionSession session = sessionOf(target.getUniqueId());
+        PlayerStateTable states = session.getStates();
+        synchronized (states) {
+            if (isInfected(target, strain))
+                return false;
+
+            int slot = states.findOrCreate(target.getUniqueId());
+            states.setInfection(slot, index, deadline);
+            states.clearProtection(slot, index);
+            session.infectionQueue(index).schedule(target.getUniqueId(), deadline);
+
+            // Only the default strain is persisted.
+            if (persisted(session) && index == 0)
+                journal.append(JournalRecord.infection(target.getUniqueId(), deadline));
+        }
+        movementTracker.markChanged(target.getUniqueId());
+
+        // Handle infection directly, if the event was skipped.
+        if (!dispatch)
+            listener.announceInfection(target, origin);
+
+        // Add potion effects.
+        for (PotionEffect effect : strain.getEffects())
+            target.addPotionEffect(effect);
+
+        metrics.recordInfection(cause);
+        FlightEvents.endInfection(record, target, origin, cause);
+        return true;
+    }
+
+    /**
+     * Infects several players at once. Listeners of the {@link InfectionBatchEvent} may cancel single infections.
+     * @param targets Players that get infected.
+     * @param origins Players that infect the target with the same index.
+     * @param strains Strains of the infection with the same index.
+     * @param count Amount of entries to use.
+     * @return Amount of infections.
+     */
+    public int infectAll(Player[] targets, Player[] origins, Strain[] strains, int count) {
+        if (count == 0)
+            return 0;
+
+        InfectionBatchEvent event = callBatchEvent(targets, origins, strains, count);
+
+        int infected = 0;
+        for (int i = 0; i < count; i++) {
+            if (event != null && event.isCancelled(i))
+                continue;
+
+            if (infect(targets[i], origins[i], strains[i], InfectionEvent.Cause.INFECTION))
+                infected++;
+        }
+
+        return infected;
+    }
+
+    /**
+     * Throws the {@link InfectionBatchEvent} for several planned infections, if anyone listens to it.
+     * @param targets Players that get infected.
+     * @param origins Players that infect the target with the same index.
+     * @param strains Strains of the infection with the same index.
+     * @param count Amount of entries to use.
+     * @return Event with the cancelled entries or null if nobody listens.
+     */
+    public InfectionBatchEvent callBatchEvent(Player[] targets, Player[] origins, Strain[] strains, int count) {
+        if (InfectionBatchEvent.getHandlerList().getRegisteredListeners().length == 0)
+            return null;
+
+        InfectionBatchEvent event = new InfectionBatchEvent(Arrays.copyOf(targets, count), Arrays.copyOf(origins, count),
+                                                            Arrays.copyOf(strains, count));
+        long start = System.nanoTime();
+        event.callEvent();
+        metrics.recordDispatch(System.nanoTime() - start);
+        return event;
+    }
+
+    /**
+     * Check if a player can get infected with the default strain right now.
+     * @param target Player to be checked.
+     * @return True if the player is not infected, not protected and not excluded.
+     */
+    public boolean canInfect(Player target) {
+        return canInfect(target, getStrains(target).getDefault());
+    }
+
+    /**
+     * Check if a player can get infected with a strain right now.
+     * @param target Player to be checked.
+     * @param strain Strain to check.
+     * @return True if the player is not infected with the strain, not protected from it and not excluded.
+     */
+    public boolean canInfect(Player target, Strain strain) {
         // Check if player is already infected or protected.
-        if (isInfected(target) || isProtected(target))
+        if (isInfected(target, strain) || isProtected(target, strain))
             return false;
 
         // Check if infection in air is allowed.
@@ -101,23 +760,48 @@ public class InfectionManager {
             return false;
 
         // Check if player is in GameMode Creative.
-        if (target.getGameMode() == GameMode.CREATIVE)
-            return false;
+        return target.getGameMode() != GameMode.CREATIVE;
+    }
 
-        // Throw event.
-        InfectionEvent event = new InfectionEvent(target, origin, cause);
-        event.callEvent();
+    // ~~~~~~~~~~~~~~~~~~~~ Living entities ~~~~~~~~~~~~~~~~~~~~
 
-        // Return false, if event was cancelled.
-        if (event.isCancelled())
-            return false;
+    /**
+     * Check if a player or mob is infected.
+     * @param entity Player or mob to be checked.
+     * @return True if infected.
+     */
+    public boolean isInfected(LivingEntity entity) {
+        if (entity instanceof Player)
+            return isInfected((Player) entity);
 
-        // Add potion effects.
-        config.getEffects().forEach(effect -> target.addPotionEffect(effect));
+        return mobs.isInfected(entity.getUniqueId());
+    }
 
-        // Add to list of infected players.
-        infectedPlayers.put(target.getUniqueId(), System.currentTimeMillis() + 1000 * config.getInfectionTime());
-        protectedPlayers.remove(target.getUniqueId());
+    /**
+     * Infects a player or a mob. Mobs can only get infected if mob infections are enabled for their type.
+     * Must be called on the main thread for mobs.
+     * @param target Player or mob that gets infected.
+     * @param origin Player or mob that had the infection or null if infected by command.
+     * @return True if the target got infected.
+     */
+    public boolean infect(LivingEntity target, LivingEntity origin) {
+        if (target instanceof Player)
+            return infect((Player) target, origin, origin != null ? InfectionEvent.Cause.INFECTION : InfectionEvent.Cause.COMMAND);
+
+        return mobs.infect(target, origin);
+    }
+
+    /**
+     * Check if all listeners of an event belong to this plugin.
+     * Those events don't have to be thrown, because the plugin handles them directly.
+     * @param handlers Handlers of the event.
+     * @return True if no other plugin listens to the event.
+     */
+    private boolean onlyOwnListeners(HandlerList handlers) {
+        for (RegisteredListener registered : handlers.getRegisteredListeners()) {
+            if (registered.getListener() != listener)
+                return false;
+        }
 
         return true;
     }
@@ -125,32 +809,96 @@ public class InfectionManager {
     // ~~~~~~~~~~~~~~~~~~~~ Protection ~~~~~~~~~~~~~~~~~~~~
 
     /**
-     * Cures the player and removes the effects. Also sets the protection time for him.
+     * Cures the player from all strains and removes the effects. Also sets the protection time for him.
      * @param player Player to be cured.
      */
     public void cure(Player player, InfectionCuredEvent.Cause cause) {
+        PlayerStateTable states = sessionOf(player.getUniqueId()).getStates();
+        long strains;
+        synchronized (states) {
+            int slot = states.find(player.getUniqueId());
+            strains = slot != -1 ? states.getInfectedStrains(slot) : 0L;
+        }
+
+        // Without any infection the cure still counts for the default strain.
+        if (strains == 0)
+            strains = 1L;
+
+        for (long bits = strains; bits != 0; bits &= bits - 1)
+            cure(player, Long.numberOfTrailingZeros(bits), cause);
+    }
+
+    /**
+     * Cures the player from a strain and removes its effects. Also sets the protection time of the strain for him.
+     * @param player Player to be cured.
+     * @param strain Strain to cure.
+     */
+    public void cure(Player player, Strain strain, InfectionCuredEvent.Cause cause) {
+        cure(player, strain.getIndex(), cause);
+    }
+
+    /**
+     * Cures the player from a strain. Strains that were removed from the config are cured without protection.
+     * @param player Player to be cured.
+     * @param index Index of the strain.
+     */
+    public void cure(Player player, int index, InfectionCuredEvent.Cause cause) {
+        InfectionSession session = sessionOf(player.getUniqueId());
+        PlayerStateTable states = session.getStates();
+        Strain strain = getStrains(session).get(index);
+
         // Add protection if player did not die.
-        if (cause != InfectionCuredEvent.Cause.DEATH)
-            protectedPlayers.put(player.getUniqueId(), System.currentTimeMillis() + 1000 * config.getProtectionTime());
+        synchronized (states) {
+            if (cause != InfectionCuredEvent.Cause.DEATH && strain != null) {
+                long deadline = clock.inSeconds(strain.getProtectionTime());
+                states.setProtection(states.findOrCreate(player.getUniqueId()), index, deadline);
+                session.protectionQueue(index).schedule(player.getUniqueId(), deadline);
+
+                if (persisted(session) && index == 0)
+                    journal.append(JournalRecord.protection(player.getUniqueId(), deadline));
+            }
+
+            // Remove infection.
+            removeInfection(player.getUniqueId(), index);
+        }
+        movementTracker.markChanged(player.getUniqueId());
 
-        // Remove from map.
-        infectedPlayers.remove(player.getUniqueId());
+        metrics.recordCure(cause);
+        FlightEvents.cure(player, cause);
 
         // Throw event.
-        new InfectionCuredEvent(player, cause).callEvent();
+        long start = System.nanoTime();
+        new InfectionCuredEvent(player, strain, cause).callEvent();
+        metrics.recordDispatch(System.nanoTime() - start);
 
         // Remove potion effects if cured by command.
-        if (cause == InfectionCuredEvent.Cause.COMMAND)
-            config.getEffects().forEach(effect -> player.removePotionEffect(effect.getType()));
+        if (cause == InfectionCuredEvent.Cause.COMMAND && strain != null) {
+            for (PotionEffect effect : strain.getEffects())
+                player.removePotionEffect(effect.getType());
+        }
     }
 
     /**
      * Check if a player is protected.
      * @param player Player to be checked.
-     * @return True if protected, else false.
+     * @return True if protected from any strain, else false.
      */
     public boolean isProtected(Player player) {
-        return protectionTimeMillis(player) > 0;
+        return getProtectionDeadline(player) > clock.getTick();
+    }
+
+    /**
+     * Check if a player is protected from a strain.
+     * @param player Player to be checked.
+     * @param strain Strain to check.
+     * @return True if protected from the strain.
+     */
+    public boolean isProtected(Player player, Strain strain) {
+        PlayerStateTable states = sessionOf(player.getUniqueId()).getStates();
+        synchronized (states) {
+            int slot = states.find(player.getUniqueId());
+            return slot != -1 && states.getProtectionDeadline(slot, strain.getIndex()) > clock.getTick();
+        }
     }
 
     /**
@@ -159,26 +907,315 @@ public class InfectionManager {
      * @return Amount of time that the player is protected.
      */
     public long protectionTimeMillis(Player player) {
-        return getProtectionExpireTimestamp(player) - System.currentTimeMillis();
+        return (getProtectionDeadline(player) - clock.getTick()) * TickClock.MILLIS_PER_TICK;
+    }
+
+    /**
+     * Returns the tick when the last protection of the player runs out.
+     * @param player Player to check.
+     * @return Tick when protection expires or the current tick if he is not protected.
+     */
+    public long getProtectionDeadline(Player player) {
+        PlayerStateTable states = sessionOf(player.getUniqueId()).getStates();
+        synchronized (states) {
+            int slot = states.find(player.getUniqueId());
+            return slot != -1 && states.hasFlag(slot, PlayerStateTable.PROTECTED) ? states.getProtectionDeadline(slot)
+                                                                                 : clock.getTick();
+        }
     }
 
     /**
-     * Returns the timestamp when the player will not be protected anymore.
+     * Returns the timestamp when the player will not be protected anymore. Only meant for display.
      * @param player Player to check.
      * @return Timestamp when protection expires.
      */
     public long getProtectionExpireTimestamp(Player player) {
-        return protectedPlayers.getOrDefault(player.getUniqueId(), System.currentTimeMillis());
+        return clock.toMillis(getProtectionDeadline(player));
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Removal ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Removes the infections of a player with all strains without curing him.
+     * @param uuid UUID of the player.
+     */
+    public void removeInfection(UUID uuid) {
+        InfectionSession session = sessionOf(uuid);
+        PlayerStateTable states = session.getStates();
+        synchronized (states) {
+            int slot = states.find(uuid);
+            if (slot != -1 && states.hasFlag(slot, PlayerStateTable.INFECTED)) {
+                states.clearInfection(slot);
+                if (persisted(session))
+                    journal.append(JournalRecord.infectionCleared(uuid));
+            }
+        }
+        movementTracker.markChanged(uuid);
+    }
+
+    /**
+     * Removes the infection of a player with a strain without curing him.
+     * @param uuid UUID of the player.
+     * @param strain Index of the strain.
+     */
+    public void removeInfection(UUID uuid, int strain) {
+        InfectionSession session = sessionOf(uuid);
+        PlayerStateTable states = session.getStates();
+        synchronized (states) {
+            int slot = states.find(uuid);
+            if (slot != -1 && (states.getInfectedStrains(slot) & (1L << strain)) != 0) {
+                states.clearInfection(slot, strain);
+                if (persisted(session) && strain == 0)
+                    journal.append(JournalRecord.infectionCleared(uuid));
+            }
+        }
+        movementTracker.markChanged(uuid);
+    }
+
+    /**
+     * Removes the protections of a player from all strains.
+     * @param uuid UUID of the player.
+     */
+    public void removeProtection(UUID uuid) {
+        InfectionSession session = sessionOf(uuid);
+        PlayerStateTable states = session.getStates();
+        synchronized (states) {
+            int slot = states.find(uuid);
+            if (slot != -1 && states.hasFlag(slot, PlayerStateTable.PROTECTED)) {
+                states.clearProtection(slot);
+                if (persisted(session))
+                    journal.append(JournalRecord.protectionCleared(uuid));
+            }
+        }
+        movementTracker.markChanged(uuid);
+    }
+
+    /**
+     * Removes the protection of a player from a strain.
+     * @param uuid UUID of the player.
+     * @param strain Index of the strain.
+     */
+    public void removeProtection(UUID uuid, int strain) {
+        InfectionSession session = sessionOf(uuid);
+        PlayerStateTable states = session.getStates();
+        synchronized (states) {
+            int slot = states.find(uuid);
+            if (slot != -1 && (states.getProtectedStrains(slot) & (1L << strain)) != 0) {
+                states.clearProtection(slot, strain);
+                if (persisted(session) && strain == 0)
+                    journal.append(JournalRecord.protectionCleared(uuid));
+            }
+        }
+        movementTracker.markChanged(uuid);
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Sessions ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Starts a session in a world. Players that are in the world join it right away.
+     * @param name Name of the session.
+     * @param world World of the session.
+     * @return New session or null if the name or the world is already used by another session.
+     */
+    public InfectionSession createSession(String name, World world) {
+        String key = name.toLowerCase();
+        if (key.equals(InfectionSession.GLOBAL_NAME) || sessions.containsKey(key) || sessionsByWorld.containsKey(world.getUID()))
+            return null;
+
+        InfectionSession session = new InfectionSession(name, world.getUID());
+        session.setChecker(new InfectionChecker(this, session));
+        sessions.put(key, session);
+        sessionsByWorld.put(world.getUID(), session);
+
+        // Players of the world are moved on their own thread.
+        for (Player player : Bukkit.getOnlinePlayers())
+            scheduler.runFor(player, () -> handleWorldChange(player));
+
+        session.getChecker().restart();
+
+        if (journal != null)
+            plugin.getLogger().warning("Session " + name + " is not kept by the persistence. It ends on restart.");
+
+        return session;
+    }
+
+    /**
+     * Ends a session. Its participants lose their infections and protections of the session and
+     * go back to the global session.
+     * @param name Name of the session.
+     * @return True if the session existed.
+     */
+    public boolean removeSession(String name) {
+        InfectionSession session = sessions.remove(name.toLowerCase());
+        if (session == null)
+            return false;
+
+        sessionsByWorld.remove(session.getWorld());
+        session.getChecker().shutdown();
+
+        // Participants are moved on their own thread. Their session is known until they are moved or leave.
+        for (Player player : session.getParticipants())
+            scheduler.runFor(player, () -> handleWorldChange(player));
+
+        session.close();
+        return true;
+    }
+
+    /**
+     * Get the session of a player.
+     * @param uuid UUID of the player.
+     * @return Session he takes part in or the global session.
+     */
+    public InfectionSession sessionOf(UUID uuid) {
+        return participants.getOrDefault(uuid, global);
+    }
+
+    /**
+     * Get a session by its name. The case is ignored.
+     * @param name Name of the session.
+     * @return Session or null if it does not exist.
+     */
+    public InfectionSession getSession(String name) {
+        return name.equalsIgnoreCase(InfectionSession.GLOBAL_NAME) ? global : sessions.get(name.toLowerCase());
+    }
+
+    /**
+     * All sessions except for the global session.
+     */
+    public Collection<InfectionSession> getSessions() {
+        return sessions.values();
+    }
+
+    public InfectionSession getGlobalSession() {
+        return global;
+    }
+
+    /**
+     * Get the strains of a session.
+     * @param session Session to check.
+     * @return Strains with the values of the session.
+     */
+    public StrainRegistry getStrains(InfectionSession session) {
+        ConfigSnapshot settings = config.getSnapshot();
+        return session.isGlobal() ? settings.getStrains() : settings.getStrains(session.getName());
+    }
+
+    /**
+     * Get the strains of the session a player takes part in.
+     * @param player Player to check.
+     * @return Strains with the values of his session.
+     */
+    public StrainRegistry getStrains(Player player) {
+        return getStrains(sessionOf(player.getUniqueId()));
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Mobs ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Check if mobs can get infected. Region threaded servers don't infect mobs, because the entity index
+     * is shared by all regions and mobs may only be accessed by the region that owns them.
+     * @return True if enabled in the config and supported by the server.
+     */
+    public boolean mobInfectionEnabled() {
+        return config.mobInfectionEnabled() && !scheduler.isRegionized();
+    }
+
+    private void warnIfMobsUnsupported() {
+        if (config.mobInfectionEnabled() && scheduler.isRegionized())
+            plugin.getLogger().warning("mob-infection-enabled has no effect on region threaded servers.");
+    }
+
+    /**
+     * Check if changes of a session are written to the journal.
+     */
+    private boolean persisted(InfectionSession session) {
+        return journal != null && session.isGlobal();
     }
 
     // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
 
+    /**
+     * Copy of all infected players. Changes to it have no effect.
+     * @return Map of UUID and timestamp in milliseconds when the infection expires.
+     */
     public HashMap<UUID, Long> getInfectedPlayers() {
-        return infectedPlayers;
+        return toMillis(global.getStates().getInfectedView());
     }
 
+    /**
+     * Copy of all protected players. Changes to it have no effect.
+     * @return Map of UUID and timestamp in milliseconds when the protection expires.
+     */
     public HashMap<UUID, Long> getProtectedPlayers() {
-        return protectedPlayers;
+        return toMillis(global.getStates().getProtectedView());
+    }
+
+    /**
+     * Read-only view of all infected players.
+     * @return Map of UUID and tick of the plugin clock when the infection expires.
+     */
+    public Map<UUID, Long> getInfectionDeadlines() {
+        return global.getStates().getInfectedView();
+    }
+
+    /**
+     * Read-only view of all protected players.
+     * @return Map of UUID and tick of the plugin clock when the protection expires.
+     */
+    public Map<UUID, Long> getProtectionDeadlines() {
+        return global.getStates().getProtectedView();
+    }
+
+    private HashMap<UUID, Long> toMillis(Map<UUID, Long> deadlines) {
+        HashMap<UUID, Long> timestamps = new HashMap<>();
+        synchronized (global.getStates()) {
+            deadlines.forEach((uuid, deadline) -> timestamps.put(uuid, clock.toMillis(deadline)));
+        }
+
+        return timestamps;
+    }
+
+    /**
+     * Get the state table of the global session. Synchronize on it while using it.
+     * @return State table of all online, infected and protected players outside of other sessions.
+     */
+    public PlayerStateTable getStates() {
+        return global.getStates();
+    }
+
+    /**
+     * Get the scheduler for tasks on the main thread or the thread of a player.
+     */
+    public CheckScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public TickClock getClock() {
+        return clock;
+    }
+
+    public InfectionMetrics getMetrics() {
+        return metrics;
+    }
+
+    public InfectionChecker getInfectionChecker() {
+        return global.getChecker();
+    }
+
+    public MovementTracker getMovementTracker() {
+        return movementTracker;
+    }
+
+    public MobInfections getMobs() {
+        return mobs;
+    }
+
+    /**
+     * Get the contact trace.
+     * @return Trace or null if it is disabled.
+     */
+    public ContactTrace getTrace() {
+        return trace;
     }
 
     public Config getConfig() {
@@ -35,6 +35,22 @@ public class Main extends JavaPlugin {
         init();
     }
 
+    /**
+     * Execute when plugin is disabled.
+     */
+    @Override
+    public void onDisable() {
+        // Stop running tasks.
+        if (infectionManager != null)
+            infectionManager.shutdown();
+
+        // Write pending file changes.
+        if (config != null)
+            config.flush();
+        if (messageHandler != null)
+            messageHandler.flush();
+    }
+
     /**
      * Init all managers and configs.
      */
@@ -59,4 +75,8 @@ public class Main extends JavaPlugin {
     public BukkitCommandManager getCommandManager() {
         return commandManager;
     }
+
+    public InfectionManager getInfectionManager() {
+        return infectionManager;
+    }
 }
\ No newline at end of file
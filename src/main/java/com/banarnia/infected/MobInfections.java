@@ -0,0 +1,283 @@
+package com.banarnia.infected;
+
+import com.banarnia.infected.config.ConfigSnapshot;
+import com.banarnia.infected.events.EntityInfectionEvent;
+import com.banarnia.infected.tracking.EntityIndex;
+import com.banarnia.infected.tracking.ExpiryQueue;
+import com.banarnia.infected.tracking.PlayerStateTable;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffect;
+
+import java.util.UUID;
+
+/**
+ * Infection state of mobs and other living entities that are not players.
+ * Thousands of mobs may be infected at once, so they are kept apart from the players and found through an
+ * {@link EntityIndex} instead of asking the world. Everything in here must only be used on the main thread.
+ */
+public class MobInfections {
+
+    // Instances
+    private InfectionManager manager;
+
+    // Entities that may get infected, by chunk.
+    private EntityIndex index = new EntityIndex();
+
+    // Infection and protection of mobs. Slots don't have handles, those are in the index.
+    private PlayerStateTable states = new PlayerStateTable(256);
+
+    // Deadlines in the order they expire.
+    private ExpiryQueue infectionExpiries = new ExpiryQueue();
+    private ExpiryQueue protectionExpiries = new ExpiryQueue();
+
+    // Slot where the next run continues to collect infected mobs.
+    private int sourceCursor;
+
+    /**
+     * Constructor
+     * @param manager Instance of the manager.
+     */
+    public MobInfections(InfectionManager manager) {
+        this.manager = manager;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Index ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Check if an entity is a mob that may get infected.
+     * @param entity Entity to check.
+     * @return True if mob infections are enabled and the type of the entity is configured.
+     */
+    public boolean isSusceptible(LivingEntity entity) {
+        ConfigSnapshot settings = manager.getConfig().getSnapshot();
+        return manager.mobInfectionEnabled() && !(entity instanceof Player)
+               && settings.isInfectableMob(entity.getType());
+    }
+
+    /**
+     * Adds a mob to the index, if it may get infected.
+     * @param entity Entity that spawned or was loaded.
+     */
+    public void track(LivingEntity entity) {
+        if (isSusceptible(entity))
+            index.add(entity);
+    }
+
+    /**
+     * Removes a mob from the index. Its infection continues until it expires.
+     * @param uuid UUID of the entity that was unloaded.
+     */
+    public void untrack(UUID uuid) {
+        index.remove(uuid);
+    }
+
+    /**
+     * Removes a mob that died from the index and drops its state.
+     * @param uuid UUID of the entity.
+     */
+    public void remove(UUID uuid) {
+        index.remove(uuid);
+
+        int slot = states.find(uuid);
+        if (slot != -1)
+            states.remove(slot);
+    }
+
+    /**
+     * Indexes all loaded mobs again, e.g. after the configured types changed.
+     */
+    public void rebuildIndex() {
+        index.clear();
+        if (!manager.mobInfectionEnabled())
+            return;
+
+        for (World world : Bukkit.getWorlds()) {
+            for (LivingEntity entity : world.getLivingEntities())
+                track(entity);
+        }
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Infection ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Check if a mob is infected.
+     * @param uuid UUID of the mob.
+     * @return True if infected.
+     */
+    public boolean isInfected(UUID uuid) {
+        int slot = states.find(uuid);
+        return slot != -1 && states.hasFlag(slot, PlayerStateTable.INFECTED)
+               && states.getInfectionDeadline(slot) > manager.getClock().getTick();
+    }
+
+    /**
+     * Check if a mob is protected.
+     * @param uuid UUID of the mob.
+     * @return True if protected.
+     */
+    public boolean isProtected(UUID uuid) {
+        int slot = states.find(uuid);
+        return slot != -1 && states.hasFlag(slot, PlayerStateTable.PROTECTED)
+               && states.getProtectionDeadline(slot) > manager.getClock().getTick();
+    }
+
+    /**
+     * Check if a mob can get infected.
+     * @param entity Mob to check.
+     * @return True if it is susceptible, alive and neither infected nor protected.
+     */
+    public boolean canInfect(LivingEntity entity) {
+        if (!entity.isValid() || !isSusceptible(entity))
+            return false;
+
+        int slot = states.find(entity.getUniqueId());
+        if (slot == -1)
+            return true;
+
+        long now = manager.getClock().getTick();
+        return !(states.hasFlag(slot, PlayerStateTable.INFECTED) && states.getInfectionDeadline(slot) > now)
+               && !(states.hasFlag(slot, PlayerStateTable.PROTECTED) && states.getProtectionDeadline(slot) > now);
+    }
+
+    /**
+     * Infects a mob giving it all PotionEffects.
+     * @param target Mob that gets infected.
+     * @param origin Player or mob that had the infection or null if infected by command.
+     * @return True if the mob got infected.
+     */
+    public boolean infect(LivingEntity target, LivingEntity origin) {
+        if (!canInfect(target))
+            return false;
+
+        // Throw event, if anyone listens to it.
+        if (EntityInfectionEvent.getHandlerList().getRegisteredListeners().length > 0) {
+            EntityInfectionEvent event = new EntityInfectionEvent(target, origin);
+            event.callEvent();
+
+            if (event.isCancelled())
+                return false;
+        }
+
+        // Store infection.
+        ConfigSnapshot settings = manager.getConfig().getSnapshot();
+        long deadline = manager.getClock().inSeconds(settings.getInfectionTime());
+
+        int slot = states.findOrCreate(target.getUniqueId());
+        states.setInfection(slot, deadline);
+        states.clearProtection(slot);
+        infectionExpiries.schedule(target.getUniqueId(), deadline);
+        index.add(target);
+
+        // Add potion effects.
+        for (PotionEffect effect : settings.getEffects())
+            target.addPotionEffect(effect);
+        if (settings.glowEnabled())
+            target.setGlowing(true);
+
+        manager.getMetrics().recordMobInfection();
+        return true;
+    }
+
+    /**
+     * Cures a mob and protects it for the protection time.
+     * @param entity Mob to be cured.
+     */
+    public void cure(LivingEntity entity) {
+        UUID uuid = entity.getUniqueId();
+        long deadline = manager.getClock().inSeconds(manager.getConfig().getProtectionTime());
+
+        int slot = states.findOrCreate(uuid);
+        states.setProtection(slot, deadline);
+        states.clearInfection(slot);
+        protectionExpiries.schedule(uuid, deadline);
+
+        entity.setGlowing(false);
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Expiry ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Cures mobs whose infection expired and drops protections that ran out.
+     * Mobs that are not loaded anymore lose their state.
+     * @param now Current tick.
+     */
+    public void handleExpiries(long now) {
+        while (infectionExpiries.hasDue(now)) {
+            UUID uuid = infectionExpiries.peekId();
+            long deadline = infectionExpiries.peekDeadline();
+            infectionExpiries.poll();
+
+            int slot = states.find(uuid);
+            if (slot == -1 || !states.hasFlag(slot, PlayerStateTable.INFECTED) || states.getInfectionDeadline(slot) != deadline)
+                continue;
+
+            LivingEntity entity = index.get(uuid);
+            if (entity != null && entity.isValid())
+                cure(entity);
+            else
+                states.remove(slot);
+        }
+
+        while (protectionExpiries.hasDue(now)) {
+            UUID uuid = protectionExpiries.peekId();
+            long deadline = protectionExpiries.peekDeadline();
+            protectionExpiries.poll();
+
+            int slot = states.find(uuid);
+            if (slot != -1 && states.hasFlag(slot, PlayerStateTable.PROTECTED) && states.getProtectionDeadline(slot) == deadline)
+                states.clearProtection(slot);
+        }
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Sources ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Collects loaded infected mobs. Continues where the last call stopped, so every mob gets its turn
+     * while the amount per call stays bounded.
+     * @param out Array that receives the mobs.
+     * @param max Maximum amount of mobs to collect.
+     * @return Amount of collected mobs.
+     */
+    public int collectSources(LivingEntity[] out, int max) {
+        long now = manager.getClock().getTick();
+        int count = 0;
+        int limit = Math.min(max, out.length);
+
+        // Visit every slot at most once per call.
+        int visited = 0;
+        int slot = sourceCursor;
+        while (count < limit && visited < states.size()) {
+            slot = states.nextSlot(slot);
+            if (slot == -1) {
+                slot = states.nextSlot(0);
+                if (slot == -1)
+                    break;
+            }
+
+            visited++;
+            if (states.hasFlag(slot, PlayerStateTable.INFECTED) && states.getInfectionDeadline(slot) > now) {
+                LivingEntity entity = index.get(states.getId(slot));
+                if (entity != null && entity.isValid())
+                    out[count++] = entity;
+            }
+
+            slot++;
+        }
+
+        sourceCursor = slot;
+        return count;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public EntityIndex getIndex() {
+        return index;
+    }
+
+    public int getInfectedCount() {
+        return states.getInfectedCount();
+    }
+}
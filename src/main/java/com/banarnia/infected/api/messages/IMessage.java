@@ -26,21 +26,65 @@ public interface IMessage {
      */
     String get();
 
+    /**
+     * Set the message.
+     * @param message New message.
+     */
+    void set(String message);
+
+    /**
+     * Get the compiled message.
+     * Implementations that don't keep a template compile the configured message on every call.
+     * @return Template of the configured message.
+     */
+    default MessageTemplate getTemplate() {
+        return MessageTemplate.compile(get());
+    }
+
+    /**
+     * Set the compiled message.
+     * Implementations that don't keep a template get the message as it was configured.
+     * @param template New template.
+     */
+    default void setTemplate(MessageTemplate template) {
+        set(template.getSource());
+    }
+
     /**
      * Returns the configured message with a replacement.
+     * Placeholders like "%name%" are replaced by the template, any other chars by a plain search.
      * @param prev Chars to be replaced.
      * @param replacement Chars to insert.
      * @return The message with a replacement.
      */
     default String replace(String prev, String replacement) {
-        return get().replace(prev, replacement);
+        if (!MessageTemplate.isPlaceholder(prev))
+            return get().replace(prev, replacement);
+
+        return getTemplate().render(prev, replacement);
     }
 
     /**
-     * Set the message.
-     * @param message New message.
+     * Returns the configured message with several replacements.
+     * Placeholders like "%name%" are replaced by the template, any other chars by a plain search.
+     * @param replacements Pairs of chars to be replaced and chars to insert.
+     * @return The message with all replacements.
      */
-    void set(String message);
+    default String replace(String... replacements) {
+        boolean placeholders = true;
+        for (int i = 0; i < replacements.length; i += 2)
+            placeholders &= MessageTemplate.isPlaceholder(replacements[i]);
+
+        if (placeholders)
+            return getTemplate().render(replacements);
+
+        // Replace one after another like before the templates.
+        String message = get();
+        for (int i = 0; i + 1 < replacements.length; i += 2)
+            message = message.replace(replacements[i], replacements[i + 1]);
+
+        return message;
+    }
 
     /**
      * Insert certain placeholder into the string.
@@ -4,8 +4,11 @@ import com.banarnia.infected.api.util.FileLoader;
 import com.google.common.collect.Maps;
 import org.bukkit.plugin.java.JavaPlugin;
 
-import java.util.Arrays;
+import java.io.File;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * This class handles messages that should be configured in a config file.
@@ -85,26 +88,107 @@ public class MessageHandler {
         if (!isRegistered(enumClass))
             throw new IllegalStateException("The Message File was already registered.");
 
+        apply(enumClass, compile(enumClass));
+    }
+
+    /**
+     * Reads and compiles the messages of an enumeration without applying them.
+     * Messages that did not change keep their current template. May be called from any thread.
+     * @param enumClass Class to be loaded.
+     * @return Templates in the order of the enum constants.
+     */
+    public MessageTemplate[] compile(Class<? extends IMessage> enumClass) {
         // Get FileLoader.
         FileLoader fileLoader = enumMap.get(enumClass);
+        IMessage[] values = enumClass.getEnumConstants();
+        MessageTemplate[] templates = new MessageTemplate[values.length];
 
-        // Reload file.
-        fileLoader.reload();
+        synchronized (fileLoader) {
+            // Reload file.
+            fileLoader.reload();
 
-        // Read values.
-        Arrays.stream(enumClass.getEnumConstants()).forEach(enumValue -> {
-            // Key to the message.
-            String key = enumValue.getKey();
+            // Read values.
+            for (int i = 0; i < values.length; i++) {
+                // Message of the config, if it exists. Else default message.
+                String message = fileLoader.getOrElseSet(values[i].getKey(), values[i].getDefaultMessage());
 
-            // Default message.
-            String defaultMessage = enumValue.getDefaultMessage();
+                // Compile message once, so it is rendered without further parsing.
+                MessageTemplate current = values[i].getTemplate();
+                templates[i] = current != null && current.getSource().equals(message) ? current : MessageTemplate.compile(message);
 
-            // Message of the config, if it exists. Else default message.
-            String message = fileLoader.getOrElseSet(key, defaultMessage);
+                // Implementations without templates only know the translated message, so compare the translated texts.
+                if (current != null && templates[i] != current && current.render().equals(templates[i].render()))
+                    templates[i] = current;
+            }
 
-            // Set message value in the enum.
-            enumValue.set(message);
+            // Write missing messages at once.
+            fileLoader.saveChanges();
+        }
+
+        return templates;
+    }
+
+    /**
+     * Reads and compiles the messages of all registered enumerations without applying them.
+     * May be called from any thread.
+     * @return Templates of every enumeration.
+     */
+    public Map<Class<? extends IMessage>, MessageTemplate[]> compileAll() {
+        return compileFiles(null);
+    }
+
+    /**
+     * Reads and compiles the messages of all enumerations that are saved in one of the given files.
+     * May be called from any thread.
+     * @param fileNames Names of the files that changed. Null for all files.
+     * @return Templates of every enumeration of the files.
+     */
+    public Map<Class<? extends IMessage>, MessageTemplate[]> compileFiles(Set<String> fileNames) {
+        Map<Class<? extends IMessage>, MessageTemplate[]> templates = Maps.newHashMap();
+        enumMap.forEach((enumeration, fileLoader) -> {
+            if (fileNames == null || fileNames.contains(fileLoader.getFile().getName()))
+                templates.put(enumeration, compile(enumeration));
         });
+
+        return templates;
+    }
+
+    /**
+     * Counts the templates that differ from the ones in use.
+     * @param templates Templates of several enumerations.
+     * @return Amount of changed messages.
+     */
+    public int countChanges(Map<Class<? extends IMessage>, MessageTemplate[]> templates) {
+        int changes = 0;
+        for (Map.Entry<Class<? extends IMessage>, MessageTemplate[]> entry : templates.entrySet()) {
+            IMessage[] values = entry.getKey().getEnumConstants();
+            for (int i = 0; i < values.length; i++) {
+                MessageTemplate current = values[i].getTemplate();
+                if (current != entry.getValue()[i] && !current.render().equals(entry.getValue()[i].render()))
+                    changes++;
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Replaces the messages of an enumeration. Call on the main thread.
+     * @param enumClass Class of the messages.
+     * @param templates Templates in the order of the enum constants.
+     */
+    public void apply(Class<? extends IMessage> enumClass, MessageTemplate[] templates) {
+        IMessage[] values = enumClass.getEnumConstants();
+        for (int i = 0; i < values.length; i++)
+            values[i].setTemplate(templates[i]);
+    }
+
+    /**
+     * Replaces the messages of several enumerations. Call on the main thread.
+     * @param templates Templates of every enumeration.
+     */
+    public void apply(Map<Class<? extends IMessage>, MessageTemplate[]> templates) {
+        templates.forEach(this::apply);
     }
 
     // Reload all messages.
@@ -112,9 +196,26 @@ public class MessageHandler {
         enumMap.keySet().forEach(enumeration -> load(enumeration));
     }
 
+    // Write all message files that are not saved yet.
+    public void flush() {
+        enumMap.values().stream().distinct().forEach(fileLoader -> {
+            synchronized (fileLoader) {
+                fileLoader.flush();
+            }
+        });
+    }
+
     // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
 
     public FileLoader getDefaultFile() {
         return defaultFile;
     }
+
+    /**
+     * Get the files of all registered enumerations.
+     * @return Files that contain messages.
+     */
+    public Set<File> getFiles() {
+        return enumMap.values().stream().map(FileLoader::getFile).collect(Collectors.toSet());
+    }
 }
\ No newline at end of file
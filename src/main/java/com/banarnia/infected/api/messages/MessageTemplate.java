@@ -0,0 +1,174 @@
+package com.banarnia.infected.api.messages;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable message with translated color codes and placeholders that are already split from the text.
+ * Placeholders look like "%name%" and are rendered in one pass into a reused builder.
+ */
+public final class MessageTemplate {
+
+    // Builder that is reused by every render of a thread.
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    // Message as it was configured.
+    private final String source;
+
+    // Complete text with translated colors.
+    private final String text;
+
+    // Text parts between the placeholders. There is always one part more than placeholders.
+    private final String[] parts;
+
+    // Placeholders including their percent signs.
+    private final String[] placeholders;
+
+    private MessageTemplate(String source, String text, String[] parts, String[] placeholders) {
+        this.source = source;
+        this.text = text;
+        this.parts = parts;
+        this.placeholders = placeholders;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Compilation ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Compiles a message.
+     * @param message Message with '&' color codes.
+     * @return Template of the message.
+     */
+    public static MessageTemplate compile(String message) {
+        String text = ChatColor.translateAlternateColorCodes('&', message);
+
+        List<String> parts = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+
+        int partStart = 0;
+        int index = 0;
+        while ((index = text.indexOf('%', index)) != -1) {
+            int end = text.indexOf('%', index + 1);
+            if (end == -1)
+                break;
+
+            // Single percent signs, e.g. "50%", are no placeholders.
+            if (!isPlaceholderName(text, index + 1, end)) {
+                index = end;
+                continue;
+            }
+
+            parts.add(text.substring(partStart, index));
+            placeholders.add(text.substring(index, end + 1));
+            partStart = end + 1;
+            index = end + 1;
+        }
+        parts.add(text.substring(partStart));
+
+        return new MessageTemplate(message, text, parts.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    /**
+     * Check if a key is a placeholder of the form "%name%", so templates can replace it.
+     * @param key Key to check.
+     * @return True if it is a placeholder.
+     */
+    public static boolean isPlaceholder(String key) {
+        return key.length() > 2 && key.charAt(0) == '%' && key.charAt(key.length() - 1) == '%'
+               && isPlaceholderName(key, 1, key.length() - 1);
+    }
+
+    private static boolean isPlaceholderName(String text, int start, int end) {
+        if (start == end)
+            return false;
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-')
+                return false;
+        }
+
+        return true;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Rendering ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Get the message without replacing placeholders.
+     * @return Message with translated colors.
+     */
+    public String render() {
+        return text;
+    }
+
+    /**
+     * Renders the message with one replacement.
+     * @param placeholder Placeholder including its percent signs.
+     * @param replacement Text to insert.
+     * @return Rendered message.
+     */
+    public String render(String placeholder, String replacement) {
+        if (placeholders.length == 0)
+            return text;
+
+        StringBuilder builder = builder();
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(parts[i]);
+            builder.append(placeholders[i].equals(placeholder) ? replacement : placeholders[i]);
+        }
+
+        return builder.append(parts[placeholders.length]).toString();
+    }
+
+    /**
+     * Renders the message with several replacements.
+     * @param replacements Pairs of placeholder and text to insert.
+     * @return Rendered message. Placeholders without replacement are kept.
+     */
+    public String render(String... replacements) {
+        if (placeholders.length == 0)
+            return text;
+
+        StringBuilder builder = builder();
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(parts[i]);
+            builder.append(replacementOf(placeholders[i], replacements));
+        }
+
+        return builder.append(parts[placeholders.length]).toString();
+    }
+
+    private static String replacementOf(String placeholder, String[] replacements) {
+        for (int i = 0; i + 1 < replacements.length; i += 2) {
+            if (replacements[i].equals(placeholder))
+                return replacements[i + 1];
+        }
+
+        return placeholder;
+    }
+
+    private static StringBuilder builder() {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Message as it was configured, before colors were translated.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public int getPlaceholderCount() {
+        return placeholders.length;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -11,20 +11,43 @@ import org.bukkit.inventory.ItemStack;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * This class adds a simple to use FileLoader for YAML-Configuration.
+ * Files are written on a background thread. Saves that happen before the previous one was written are merged.
  */
 public class FileLoader {
 
+    // Background thread that writes all files. Stops while there is nothing to write.
+    private static final ThreadPoolExecutor WRITER = createWriter();
+
     private boolean loaded;
     private String path;
     private File directory;
     private File file;
     private YamlConfiguration config;
 
+    // True if default values were set that are not saved yet.
+    private boolean changed;
+
+    // Content of the latest save that is not written yet and the write that will pick it up. Guarded by writeLock.
+    // Callers hold the lock on the loader while they wait for the writer, so the writer must not need it.
+    private final Object writeLock = new Object();
+    private String pendingContent;
+    private Future<?> pendingWrite;
+
     // ~~~~~~~~~~~~~~~~~~~~ Static instance creation ~~~~~~~~~~~~~~~~~~~~
 
     /**
@@ -132,16 +155,16 @@ public class FileLoader {
     // ~~~~~~~~~~~~~~~~~~~~ File methods ~~~~~~~~~~~~~~~~~~~~
 
     /**
-     * Save the current configuration in the file. Reload file afterwards.
+     * Save the current configuration in the file. The file is written in the background.
      * @return Instance for chaining.
      */
     public FileLoader save() {
-        return save(true);
+        return save(false);
     }
 
     /**
      * Save the current configuration in the file.
-     * @param reload Reload file afterwards or not.
+     * @param reload Reload file afterwards or not. Waits until the file is written.
      * @return Instance for chaining.
      */
     public FileLoader save(boolean reload) {
@@ -149,20 +172,86 @@ public class FileLoader {
         if (file == null || config == null)
             throw new IllegalStateException();
 
-        // Save file.
+        // Serialize on the calling thread, the configuration is not thread safe.
+        String content = config.saveToString();
+        changed = false;
+
+        synchronized (writeLock) {
+            // A write is queued already, it will pick up the new content.
+            boolean queued = pendingContent != null;
+            pendingContent = content;
+
+            if (!queued)
+                pendingWrite = WRITER.submit(this::writePending);
+        }
+
+        // Reload file if wanted.
+        return reload ? reload() : this;
+    }
+
+    /**
+     * Save the configuration, if default values were added since the last save.
+     * @return Instance for chaining.
+     */
+    public FileLoader saveChanges() {
+        return changed ? save() : this;
+    }
+
+    /**
+     * Saves unsaved default values and waits until everything is written to the file.
+     * @return Instance for chaining.
+     */
+    public FileLoader flush() {
+        saveChanges();
+        awaitWrite();
+
+        return this;
+    }
+
+    /**
+     * Writes the latest content into a temporary file and replaces the file with it at once.
+     * Runs on the writer thread.
+     */
+    private void writePending() {
+        String content;
+        synchronized (writeLock) {
+            content = pendingContent;
+            pendingContent = null;
+        }
+
+        if (content == null)
+            return;
+
+        File tempFile = new File(directory, file.getName() + ".tmp");
         try {
-            config.save(file);
+            Files.createDirectories(directory.toPath());
+            Files.write(tempFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                           StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException ex) {
             ex.printStackTrace();
             Bukkit.getLogger().severe("File could not be saved: "  + this.path);
         }
+    }
 
-        // Reload file if wanted.
-        return reload ? reload() : this;
+    private static ThreadPoolExecutor createWriter() {
+        ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "Infected File Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.allowCoreThreadTimeOut(true);
+
+        return writer;
     }
 
     /**
-     * Reloads the file.
+     * Reloads the file. Waits for saves that are not written yet.
      * @return Instance for chaining.
      */
     public FileLoader reload() {
@@ -170,6 +259,9 @@ public class FileLoader {
         if (path == null)
             throw new IllegalArgumentException();
 
+        // Read what was saved last.
+        awaitWrite();
+
         // Create file.
         this.file = new File(this.path);
 
@@ -179,10 +271,32 @@ public class FileLoader {
 
         // Create YamlConfiguration.
         this.config = YamlConfiguration.loadConfiguration(this.file);
+        this.changed = false;
 
         return this;
     }
 
+    /**
+     * Waits for the latest write. Writes run in order, so it covers everything that was saved before.
+     */
+    private void awaitWrite() {
+        Future<?> write;
+        synchronized (writeLock) {
+            write = pendingWrite;
+        }
+
+        if (write == null)
+            return;
+
+        try {
+            write.get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            Bukkit.getLogger().severe("File could not be saved in time: " + this.path);
+        }
+    }
+
     // ~~~~~~~~~~~~~~~~~~~~ Write values ~~~~~~~~~~~~~~~~~~~~
 
     /**
@@ -205,6 +319,7 @@ public class FileLoader {
 
     /**
      * Get the value of a given key. Returns a default value if it does not exist and sets it in the file.
+     * Default values are saved together by {@link #saveChanges()}.
      * @param key Key in the config.
      * @param def Default value to return if it does not exist.
      * @return The config value or default value, if it does not exist in the config.
@@ -216,9 +331,9 @@ public class FileLoader {
             // Return value from config.
             return (T) config.get(key);
 
-        // Set default value and save config.
+        // Set default value. It is saved with the other defaults.
         config.set(key, def);
-        save();
+        changed = true;
 
         return def;
     }
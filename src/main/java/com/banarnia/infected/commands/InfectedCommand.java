@@ -5,13 +5,30 @@ import co.aikar.commands.CommandIssuer;
 import co.aikar.commands.annotation.CommandAlias;
 import co.aikar.commands.annotation.CommandCompletion;
 import co.aikar.commands.annotation.CommandPermission;
+import co.aikar.commands.annotation.Optional;
 import co.aikar.commands.annotation.Subcommand;
 import co.aikar.commands.bukkit.contexts.OnlinePlayer;
 import com.banarnia.infected.InfectionManager;
 import com.banarnia.infected.Main;
 import com.banarnia.infected.config.Message;
+import com.banarnia.infected.config.Strain;
+import com.banarnia.infected.config.StrainRegistry;
 import com.banarnia.infected.events.InfectionCuredEvent;
 import com.banarnia.infected.events.InfectionEvent;
+import com.banarnia.infected.metrics.InfectionMetrics;
+import com.banarnia.infected.metrics.LatencyHistogram;
+import com.banarnia.infected.runnable.AdaptiveInterval;
+import com.banarnia.infected.runnable.TickClock;
+import com.banarnia.infected.session.InfectionSession;
+import com.banarnia.infected.tracking.ContactTrace;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
 
 /**
  * This class adds the commands to start an infection.
@@ -40,54 +57,278 @@ public class InfectedCommand extends BaseCommand {
      */
     @Subcommand("reload")
     public void reload(CommandIssuer sender) {
-        // Reload config.
-        manager.getConfig().load();
-
-        // Reload language file.
-        Main.getInstance().getMessageHandler().reload();
+        // Reload config and language file in the background.
+        manager.reloadConfig(error -> {
+            if (error != null) {
+                Main.getInstance().getLogger().log(Level.SEVERE, "Could not reload the configs.", error);
+                sender.sendMessage("§cThe configs could not be reloaded. See the console for details.");
+                return;
+            }
 
-        // Send message.
-        sender.sendMessage("§eThe configs have been reloaded.");
+            // Send message.
+            sender.sendMessage("§eThe configs have been reloaded.");
+        });
     }
 
     /**
      * Infect a player.
      * @param sender Command executor.
      * @param target Player to get infected.
+     * @param strainName Name of the strain or null for the default strain.
      */
     @Subcommand("infect")
     @CommandCompletion("@players")
-    public void infect(CommandIssuer sender, OnlinePlayer target) {
-        // Check if player is already infected.
-        if (manager.isInfected(target.getPlayer())) {
-            sender.sendMessage(Message.ERROR_PLAYER_ALREADY_INFECTED.get());
-            return;
-        }
+    public void infect(CommandIssuer sender, OnlinePlayer target, @Optional String strainName) {
+        // The target is changed on his own thread.
+        manager.getScheduler().runFor(target.getPlayer(), () -> {
+            Strain strain = findStrain(sender, target, strainName != null ? strainName : StrainRegistry.DEFAULT_NAME);
+            if (strain == null)
+                return;
+
+            // Check if player is already infected.
+            if (manager.isInfected(target.getPlayer(), strain)) {
+                sender.sendMessage(Message.ERROR_PLAYER_ALREADY_INFECTED.get());
+                return;
+            }
 
-        // Infect player.
-        boolean success = manager.infect(target.getPlayer(), null, InfectionEvent.Cause.COMMAND);
+            // Infect player.
+            boolean success = manager.infect(target.getPlayer(), null, strain, InfectionEvent.Cause.COMMAND);
 
-        // If it was not successful give an information to executor.
-        if (!success)
-            sender.sendMessage(Message.ERROR_PLAYER_CANT_GET_INFECTED.get());
+            // If it was not successful give an information to executor.
+            if (!success)
+                sender.sendMessage(Message.ERROR_PLAYER_CANT_GET_INFECTED.get());
+        });
     }
 
     /**
      * Cure a player.
      * @param sender Command Executor.
      * @param target Player to get cured.
+     * @param strainName Name of the strain or null for all strains.
      */
     @Subcommand("cure")
     @CommandCompletion("@players")
-    public void cure(CommandIssuer sender, OnlinePlayer target) {
-        // Check if player is infected.
-        if (!manager.isInfected(target.getPlayer())) {
-            sender.sendMessage(Message.ERROR_PLAYER_IS_NOT_INFECTED.get());
+    public void cure(CommandIssuer sender, OnlinePlayer target, @Optional String strainName) {
+        // The target is changed on his own thread.
+        manager.getScheduler().runFor(target.getPlayer(), () -> {
+            // Cure all strains.
+            if (strainName == null) {
+                if (!manager.isInfected(target.getPlayer())) {
+                    sender.sendMessage(Message.ERROR_PLAYER_IS_NOT_INFECTED.get());
+                    return;
+                }
+
+                manager.cure(target.player, InfectionCuredEvent.Cause.COMMAND);
+                return;
+            }
+
+            Strain strain = findStrain(sender, target, strainName);
+            if (strain == null)
+                return;
+
+            // Check if player is infected.
+            if (!manager.isInfected(target.getPlayer(), strain)) {
+                sender.sendMessage(Message.ERROR_PLAYER_IS_NOT_INFECTED.get());
+                return;
+            }
+
+            // Cure player.
+            manager.cure(target.player, strain, InfectionCuredEvent.Cause.COMMAND);
+        });
+    }
+
+    /**
+     * Find a strain by its name and tell the executor if it does not exist.
+     * The strain has the values of the session the target takes part in.
+     * @param sender Command executor.
+     * @param target Player that is infected or cured.
+     * @param name Name of the strain.
+     * @return Strain or null if it does not exist.
+     */
+    private Strain findStrain(CommandIssuer sender, OnlinePlayer target, String name) {
+        Strain strain = manager.getStrains(target.getPlayer()).get(name);
+        if (strain == null)
+            sender.sendMessage(Message.ERROR_UNKNOWN_STRAIN.get());
+
+        return strain;
+    }
+
+    /**
+     * List everyone a player was close to while one of them was infected.
+     * @param sender Command executor.
+     * @param target Player to trace.
+     * @param seconds Seconds to look back or null for the last minute.
+     */
+    @Subcommand("trace")
+    @CommandCompletion("@players")
+    public void trace(CommandIssuer sender, String target, @Optional Integer seconds) {
+        ContactTrace trace = manager.getTrace();
+        if (trace == null) {
+            sender.sendMessage(Message.ERROR_TRACE_DISABLED.get());
+            return;
+        }
+
+        // Players that left are traced as well.
+        OfflinePlayer player = findPlayer(trace, target);
+        if (player == null) {
+            sender.sendMessage(Message.ERROR_UNKNOWN_PLAYER.get());
+            return;
+        }
+
+        int span = seconds != null ? Math.max(0, seconds) : 60;
+        long now = manager.getClock().getTick();
+        Map<UUID, Long> contacts = trace.getContacts(player.getUniqueId(), now - span * TickClock.TICKS_PER_SECOND);
+
+        String name = player.getName() != null ? player.getName() : player.getUniqueId().toString();
+        sender.sendMessage("§eContacts of §a" + name + " §ein the last §a" + span + " seconds§e: §a" + contacts.size());
+        contacts.forEach((uuid, tick) -> {
+            String contact = Bukkit.getOfflinePlayer(uuid).getName();
+            sender.sendMessage("§7" + (contact != null ? contact : uuid) + ": §a"
+                               + (now - tick) / TickClock.TICKS_PER_SECOND + "s §7ago");
+        });
+    }
+
+    /**
+     * Find a player by UUID or name, even if he is offline.
+     * Names of offline players are only looked up among the players of the trace, so the disk is never read.
+     * @param trace Trace with the contacts.
+     * @param target UUID or name of the player.
+     * @return Player or null if there is no player with this name.
+     */
+    private OfflinePlayer findPlayer(ContactTrace trace, String target) {
+        try {
+            return Bukkit.getOfflinePlayer(UUID.fromString(target));
+        } catch (IllegalArgumentException ex) {
+            // Not a UUID.
+        }
+
+        Player online = Bukkit.getPlayerExact(target);
+        if (online != null)
+            return online;
+
+        for (UUID uuid : trace.getPlayers()) {
+            OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
+            if (target.equalsIgnoreCase(player.getName()))
+                return player;
+        }
+
+        return null;
+    }
+
+    /**
+     * Start a session in a world. Players in the world join it right away.
+     * @param sender Command executor.
+     * @param name Name of the session.
+     * @param worldName Name of the world.
+     */
+    @Subcommand("session create")
+    @CommandCompletion("@nothing @worlds")
+    public void createSession(CommandIssuer sender, String name, String worldName) {
+        World world = Bukkit.getWorld(worldName);
+        if (world == null) {
+            sender.sendMessage(Message.ERROR_UNKNOWN_WORLD.get());
+            return;
+        }
+
+        InfectionSession session = manager.createSession(name, world);
+        if (session == null) {
+            sender.sendMessage(Message.ERROR_SESSION_ALREADY_EXISTS.get());
             return;
         }
 
-        // Cure player.
-        manager.cure(target.player, InfectionCuredEvent.Cause.COMMAND);
+        // Send message. Players of the world join on their own thread.
+        sender.sendMessage("§eThe session §a" + session.getName() + " §ehas been started in §a" + world.getName() + "§e.");
+    }
+
+    /**
+     * End a session. Its players go back to the global session.
+     * @param sender Command executor.
+     * @param name Name of the session.
+     */
+    @Subcommand("session remove")
+    public void removeSession(CommandIssuer sender, String name) {
+        if (!manager.removeSession(name)) {
+            sender.sendMessage(Message.ERROR_UNKNOWN_SESSION.get());
+            return;
+        }
+
+        // Send message.
+        sender.sendMessage("§eThe session §a" + name + " §ehas been removed.");
+    }
+
+    /**
+     * List all sessions.
+     * @param sender Command executor.
+     */
+    @Subcommand("session list")
+    public void listSessions(CommandIssuer sender) {
+        sender.sendMessage("§eSessions:");
+        for (InfectionSession session : manager.getSessions()) {
+            World world = Bukkit.getWorld(session.getWorld());
+            sender.sendMessage("§7" + session.getName() + ": §a" + (world != null ? world.getName() : session.getWorld())
+                               + "§7, §a" + session.getParticipants().size() + " §7players");
+        }
+    }
+
+    /**
+     * Show the runtime metrics.
+     * @param sender Command executor.
+     */
+    @Subcommand("stats")
+    public void stats(CommandIssuer sender) {
+        InfectionMetrics metrics = manager.getMetrics();
+        AdaptiveInterval interval = manager.getInfectionChecker().getAdaptiveInterval();
+
+        sender.sendMessage("§eInfection statistics:");
+        sender.sendMessage("§7Checks: " + format(metrics.getScanTime()));
+        sender.sendMessage("§7Pairs evaluated: §a" + metrics.getPairs());
+
+        // Infections and cures per cause.
+        StringBuilder infections = new StringBuilder("§7Infections:");
+        for (InfectionEvent.Cause cause : InfectionEvent.Cause.values())
+            infections.append(" §7").append(cause).append(" §a").append(metrics.getInfections(cause));
+        sender.sendMessage(infections.toString());
+
+        StringBuilder cures = new StringBuilder("§7Cures:");
+        for (InfectionCuredEvent.Cause cause : InfectionCuredEvent.Cause.values())
+            cures.append(" §7").append(cause).append(" §a").append(metrics.getCures(cause));
+        sender.sendMessage(cures.toString());
+
+        sender.sendMessage("§7Tracked: §a" + metrics.getTrackedPlayers() + " §7players, §a" + metrics.getInfectedPlayers()
+                           + " §7infected, §a" + metrics.getProtectedPlayers() + " §7protected, §a"
+                           + metrics.getMovingPlayers() + " §7moving");
+        sender.sendMessage("§7Mobs: §a" + metrics.getIndexedMobs() + " §7indexed, §a" + metrics.getInfectedMobs()
+                           + " §7infected, §a" + metrics.getMobInfections() + " §7infections");
+        sender.sendMessage("§7Event dispatch: " + format(metrics.getDispatchTime()));
+        sender.sendMessage(String.format("§7Check time: §a%d ticks §7(adaptive: %s, level %d, %d adjustments, server %.1f mspt)",
+                                         interval.getCheckTime(), interval.isEnabled() ? "§aon§7" : "§coff§7",
+                                         interval.getLevel(), interval.getAdjustments(), interval.getServerMspt()));
+    }
+
+    /**
+     * Reset the runtime metrics.
+     * @param sender Command executor.
+     */
+    @Subcommand("stats reset")
+    public void resetStats(CommandIssuer sender) {
+        manager.getMetrics().reset();
+
+        // Send message.
+        sender.sendMessage("§eThe statistics have been reset.");
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Formatting ~~~~~~~~~~~~~~~~~~~~
+
+    private static String format(LatencyHistogram histogram) {
+        return "§a" + histogram.getCount() + " §7(avg §a" + formatNanos((long) histogram.getMean())
+               + "§7, p50 §a" + formatNanos(histogram.getPercentile(50))
+               + "§7, p95 §a" + formatNanos(histogram.getPercentile(95))
+               + "§7, p99 §a" + formatNanos(histogram.getPercentile(99))
+               + "§7, max §a" + formatNanos(histogram.getMax()) + "§7)";
+    }
+
+    private static String formatNanos(long nanos) {
+        return nanos < 1_000_000 ? (nanos / 1000) + "µs" : String.format("%.2fms", nanos / 1_000_000.0);
     }
 
 }
@@ -1,31 +1,29 @@
 package com.banarnia.infected.config;
 
 import com.banarnia.infected.api.util.FileLoader;
-import com.google.common.collect.Lists;
-import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.potion.PotionEffect;
-import org.bukkit.potion.PotionEffectType;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class handles the configuration of the plugin.
+ * The values are held by an immutable {@link ConfigSnapshot} that is replaced as a whole on reload.
  */
 public class Config {
 
+    // Background thread that parses the file on reload. Stops while there is nothing to load.
+    private static final ThreadPoolExecutor LOADER = createLoader();
+
     // Instances
     private JavaPlugin plugin;
     private FileLoader config;
 
-    // Config options
-    private int infectionTime;
-    private List<PotionEffect> effects = Lists.newArrayList();
-    private double infectionRadius;
-    private int protectionTime;
-    private int checkTime;
-    private boolean allowInfectionInAir;
-    private boolean allowGlow;
+    // Current values
+    private volatile ConfigSnapshot snapshot;
 
     // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
 
@@ -45,93 +43,161 @@ public class Config {
     // ~~~~~~~~~~~~~~~~~~~~ Config loading ~~~~~~~~~~~~~~~~~~~~
 
     /**
-     * Load all the configurable values.
+     * Load all the configurable values on the calling thread.
      */
     public void load() {
-        // Get infection time.
-        infectionTime = config.getOrElseSet("infection-time-seconds", 60);
+        synchronized (config) {
+            publish(new ConfigSnapshot(config, plugin.getLogger(), snapshot));
+        }
+    }
 
-        // Setup default effects.
-        if (!config.hasConfigurationSection("effects")) {
-            config.set("effects.0.type", PotionEffectType.BLINDNESS.getName());
-            config.set("effects.0.amplifier", 2);
+    /**
+     * Reads the file again and parses it on a background thread. The result is not published yet.
+     * @return Future of the new snapshot.
+     */
+    public CompletableFuture<ConfigSnapshot> loadAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (config) {
+                config.reload();
+                return new ConfigSnapshot(config, plugin.getLogger(), snapshot);
+            }
+        }, LOADER);
+    }
 
-            config.set("effects.1.type", PotionEffectType.WITHER.getName());
-            config.set("effects.1.amplifier", 2);
+    /**
+     * Replaces the current values.
+     * @param next New snapshot.
+     * @return Snapshot that was replaced.
+     */
+    public ConfigSnapshot publish(ConfigSnapshot next) {
+        ConfigSnapshot previous = snapshot;
+        snapshot = next;
+
+        return previous;
+    }
 
-            config.save();
+    /**
+     * Writes everything that is not saved yet. Call when the plugin is disabled.
+     */
+    public void flush() {
+        synchronized (config) {
+            config.flush();
         }
+    }
 
-        // Clear potionEffects before reloading.
-        effects.clear();
+    private static ThreadPoolExecutor createLoader() {
+        ThreadPoolExecutor loader = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "Infected Config Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loader.allowCoreThreadTimeOut(true);
 
-        // Load effects.
-        ConfigurationSection section = config.getConfigurationSection("effects");
-        for (String key : section.getKeys(false)) {
-            ConfigurationSection effectSection = section.getConfigurationSection(key);
+        return loader;
+    }
 
-            String effectName = effectSection.getString("type");
-            int duration = 20 * infectionTime;
-            int amplifier = effectSection.getInt("amplifier");
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
 
-            // Check if given PotionEffectType is valid.
-            PotionEffectType effectType = PotionEffectType.getByName(effectName);
-            if (effectType == null) {
-                plugin.getLogger().warning("Could not load PotionEffect: " + effectName);
-                plugin.getLogger().warning("Skipping...");
-                continue;
-            }
+    /**
+     * Get the current values. Read it once per operation to get consistent values across a reload.
+     * @return Current snapshot.
+     */
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
 
-            // Create potion effect.
-            PotionEffect potionEffect = new PotionEffect(effectType, duration, amplifier);
+    /**
+     * Effects of the infection. The array is shared, don't modify it.
+     */
+    public PotionEffect[] getEffects() {
+        return snapshot.getEffects();
+    }
 
-            // Add effect to list.
-            effects.add(potionEffect);
-        }
+    public double getInfectionRadius() {
+        return snapshot.getInfectionRadius();
+    }
 
-        // Radius to infect other players.
-        infectionRadius = config.getOrElseSet("infection-radius", 5.0);
+    public int getCheckTime() {
+        return snapshot.getCheckTime();
+    }
 
-        // Seconds the player is protected after he cured the infection.
-        protectionTime = config.getOrElseSet("protection-time-seconds", 30);
+    public int getCheckSlices() {
+        return snapshot.getCheckSlices();
+    }
 
-        // Ticks between every infection check.
-        checkTime = config.getOrElseSet("infection-check-time-ticks", 20);
+    public int getCheckBudgetMicros() {
+        return snapshot.getCheckBudgetMicros();
+    }
 
-        // Allow infection of other player while in the air.
-        allowInfectionInAir = config.getOrElseSet("infection-while-in-air", false);
+    public int getProtectionTime() {
+        return snapshot.getProtectionTime();
+    }
 
-        // Allow glowing of infected players.
-        allowGlow = config.getOrElseSet("glow-enabled", true);
+    public int getInfectionTime() {
+        return snapshot.getInfectionTime();
     }
 
-    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+    public boolean allowInfectionInAir() {
+        return snapshot.allowInfectionInAir();
+    }
 
-    public List<PotionEffect> getEffects() {
-        return effects;
+    public boolean asyncCheckEnabled() {
+        return snapshot.asyncCheckEnabled();
     }
 
-    public double getInfectionRadius() {
-        return infectionRadius;
+    public boolean incrementalChecksEnabled() {
+        return snapshot.incrementalChecksEnabled();
     }
 
-    public int getCheckTime() {
-        return checkTime;
+    public double getMovementThreshold() {
+        return snapshot.getMovementThreshold();
     }
 
-    public int getProtectionTime() {
-        return protectionTime;
+    public boolean adaptiveCheckEnabled() {
+        return snapshot.adaptiveCheckEnabled();
     }
 
-    public int getInfectionTime() {
-        return infectionTime;
+    public double getAdaptiveTargetMspt() {
+        return snapshot.getAdaptiveTargetMspt();
     }
 
-    public boolean allowInfectionInAir() {
-        return allowInfectionInAir;
+    public int getAdaptiveMaxCheckTime() {
+        return snapshot.getAdaptiveMaxCheckTime();
     }
 
     public boolean glowEnabled() {
-        return allowGlow;
+        return snapshot.glowEnabled();
+    }
+
+    public boolean persistenceEnabled() {
+        return snapshot.persistenceEnabled();
+    }
+
+    public boolean suspendOnQuitEnabled() {
+        return snapshot.suspendOnQuitEnabled();
+    }
+
+    public int getSnapshotInterval() {
+        return snapshot.getSnapshotInterval();
+    }
+
+    public int getSuspendExpiry() {
+        return snapshot.getSuspendExpiry();
+    }
+
+    public boolean hotReloadEnabled() {
+        return snapshot.hotReloadEnabled();
+    }
+
+    public int getHotReloadDelay() {
+        return snapshot.getHotReloadDelay();
+    }
+
+    public boolean mobInfectionEnabled() {
+        return snapshot.mobInfectionEnabled();
+    }
+
+    public FileLoader getFileLoader() {
+        return config;
     }
 }
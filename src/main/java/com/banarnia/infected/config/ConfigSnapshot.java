@@ -0,0 +1,475 @@
+package com.banarnia.infected.config;
+
+import com.banarnia.infected.api.util.FileLoader;
+import com.google.common.collect.Lists;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.EntityType;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Immutable set of all configurable values.
+ * A reload builds a new snapshot and replaces the old one at once, so readers never see a half loaded config.
+ * Read the snapshot once and use it for the whole operation to get consistent values.
+ */
+public final class ConfigSnapshot {
+
+    // Config options
+    private final int infectionTime;
+    private final PotionEffect[] effects;
+    private final String effectsSource;
+    private final double infectionRadius;
+    private final int protectionTime;
+    private final int checkTime;
+    private final int checkSlices;
+    private final int checkBudgetMicros;
+    private final boolean asyncCheck;
+    private final boolean incrementalChecks;
+    private final double movementThreshold;
+    private final boolean adaptiveCheck;
+    private final double adaptiveTargetMspt;
+    private final int adaptiveMaxCheckTime;
+    private final boolean allowInfectionInAir;
+    private final boolean allowGlow;
+    private final int broadcastThreshold;
+    private final boolean persistence;
+    private final boolean suspendOnQuit;
+    private final int snapshotInterval;
+    private final int suspendExpiry;
+    private final boolean hotReload;
+    private final int hotReloadDelay;
+    private final boolean mobInfection;
+    private final EnumSet<EntityType> mobTypes;
+    private final int mobSourcesPerCheck;
+    private final int mobIndexRefresh;
+    private final boolean contactTrace;
+    private final int contactTraceCapacity;
+    private final int contactTraceWindow;
+    private final StrainRegistry strains;
+    private final Map<String, StrainRegistry> sessionStrains;
+    private final String sessionSource;
+
+    // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Reads all the configurable values. Missing values are set to their defaults.
+     * @param config Configuration file.
+     * @param logger Logger for invalid values.
+     * @param previous Snapshot that is replaced or null. Unchanged effects are taken from it.
+     */
+    ConfigSnapshot(FileLoader config, Logger logger, ConfigSnapshot previous) {
+        // Get infection time.
+        infectionTime = config.getOrElseSet("infection-time-seconds", 60);
+
+        // Setup default effects.
+        if (!config.hasConfigurationSection("effects")) {
+            config.set("effects.0.type", PotionEffectType.BLINDNESS.getName());
+            config.set("effects.0.amplifier", 2);
+
+            config.set("effects.1.type", PotionEffectType.WITHER.getName());
+            config.set("effects.1.amplifier", 2);
+
+            config.save();
+        }
+
+        // Read effects. They are only built again if they or the infection time changed.
+        StringBuilder source = new StringBuilder().append(infectionTime);
+        ConfigurationSection section = config.getConfigurationSection("effects");
+        for (String key : section.getKeys(false)) {
+            ConfigurationSection effectSection = section.getConfigurationSection(key);
+            source.append(';').append(effectSection.getString("type")).append(':').append(effectSection.getInt("amplifier"));
+        }
+        effectsSource = source.toString();
+
+        if (previous != null && previous.effectsSource.equals(effectsSource))
+            effects = previous.effects;
+        else
+            effects = buildEffects(section, infectionTime, logger);
+
+        // Radius to infect other players.
+        infectionRadius = config.getOrElseSet("infection-radius", 5.0);
+
+        // Seconds the player is protected after he cured the infection.
+        protectionTime = config.getOrElseSet("protection-time-seconds", 30);
+
+        // Ticks between every infection check.
+        checkTime = config.getOrElseSet("infection-check-time-ticks", 20);
+
+        // Split infected players into slices that are checked on successive ticks. 1 checks everyone at once.
+        checkSlices = config.getOrElseSet("infection-check-slices", 1);
+
+        // Microseconds a single run may take before the rest is postponed to the next tick. 0 disables the budget.
+        checkBudgetMicros = config.getOrElseSet("infection-check-budget-micros", 0);
+
+        // Compute distances on a worker thread. Infections are applied on the next tick.
+        asyncCheck = config.getOrElseSet("infection-check-async", false);
+
+        // Only check pairs of players where one of them moved or changed his state since the last check.
+        incrementalChecks = config.getOrElseSet("incremental-checks", false);
+
+        // Blocks a player has to move to be checked again. Changing the chunk always counts.
+        movementThreshold = config.getOrElseSet("movement-threshold-blocks", 1.0);
+
+        // Stretch the check time while the server is slower than the target and tighten it again afterwards.
+        adaptiveCheck = config.getOrElseSet("adaptive-check-enabled", false);
+        adaptiveTargetMspt = config.getOrElseSet("adaptive-check-target-mspt", 50.0);
+        adaptiveMaxCheckTime = config.getOrElseSet("adaptive-check-max-time-ticks", 200);
+
+        // Allow infection of other player while in the air.
+        allowInfectionInAir = config.getOrElseSet("infection-while-in-air", false);
+
+        // Allow glowing of infected players.
+        allowGlow = config.getOrElseSet("glow-enabled", true);
+
+        // Infections per tick that are announced one by one. More are announced in one summary.
+        broadcastThreshold = config.getOrElseSet("infection-broadcast-threshold", 3);
+
+        // Keep infections and protections in a journal, so they survive restarts. Changes require a restart.
+        persistence = config.getOrElseSet("persistence-enabled", false);
+
+        // Keep the remaining time of players that leave instead of curing them. Requires persistence.
+        suspendOnQuit = config.getOrElseSet("persistence-suspend-on-quit", false);
+
+        // Seconds between two compacted snapshots of the journal.
+        snapshotInterval = config.getOrElseSet("persistence-snapshot-seconds", 300);
+
+        // Hours the remaining time of players that left is kept. 0 keeps it until they rejoin.
+        suspendExpiry = config.getOrElseSet("persistence-suspend-expiry-hours", 168);
+
+        // Apply changes of the files without a reload command.
+        hotReload = config.getOrElseSet("hot-reload-enabled", false);
+
+        // Milliseconds without further changes before the files are read.
+        hotReloadDelay = config.getOrElseSet("hot-reload-delay-millis", 500);
+
+        // Spread the infection to mobs of the configured types as well.
+        mobInfection = config.getOrElseSet("mob-infection-enabled", false);
+        config.getOrElseSet("mob-infection-types", Lists.newArrayList("VILLAGER"));
+        mobTypes = readMobTypes(config.getStringList("mob-infection-types"), logger);
+
+        // Infected mobs that spread the infection per check. The others follow in the next checks.
+        mobSourcesPerCheck = config.getOrElseSet("mob-infection-sources-per-check", 256);
+
+        // Mobs whose chunk is refreshed in the entity index per check.
+        mobIndexRefresh = config.getOrElseSet("mob-index-refresh-per-check", 1024);
+
+        // Record players that were close to an infected player.
+        contactTrace = config.getOrElseSet("contact-trace-enabled", false);
+
+        // Records that are kept. The oldest records are overwritten.
+        contactTraceCapacity = config.getOrElseSet("contact-trace-capacity", 65536);
+
+        // Seconds in which the same contact is only recorded once.
+        contactTraceWindow = config.getOrElseSet("contact-trace-window-seconds", 10);
+
+        // Further strains with their own values. The top level values are the default strain.
+        Strain defaultStrain = new Strain(StrainRegistry.DEFAULT_NAME, 0, infectionTime, infectionRadius, protectionTime, effects);
+        strains = new StrainRegistry(defaultStrain, config.getConfigurationSection("strains"),
+                                     previous != null ? previous.strains : null, logger);
+
+        // Values of single sessions that differ from the top level values.
+        StringBuilder sessions = new StringBuilder();
+        sessionStrains = readSessionStrains(config, sessions, logger);
+        sessionSource = sessions.toString();
+
+        // Write missing default values at once.
+        config.saveChanges();
+    }
+
+    /**
+     * Reads the values of every session. The top level values of a session replace those of the default strain,
+     * further strains are read again, so missing values are taken from the default strain of the session.
+     * @return Strains of every session by lower case name.
+     */
+    private Map<String, StrainRegistry> readSessionStrains(FileLoader config, StringBuilder source, Logger logger) {
+        Map<String, StrainRegistry> registries = new HashMap<>();
+        ConfigurationSection section = config.getConfigurationSection("sessions");
+        if (section == null)
+            return registries;
+
+        Strain defaultStrain = strains.getDefault();
+        for (String name : section.getKeys(false)) {
+            ConfigurationSection sessionSection = section.getConfigurationSection(name);
+            if (sessionSection == null) {
+                logger.warning("Could not load session: " + name);
+                continue;
+            }
+
+            int sessionInfectionTime = sessionSection.getInt("infection-time-seconds", defaultStrain.getInfectionTime());
+            double radius = sessionSection.getDouble("infection-radius", defaultStrain.getInfectionRadius());
+            int sessionProtectionTime = sessionSection.getInt("protection-time-seconds", defaultStrain.getProtectionTime());
+
+            // Effects are built again, because their duration depends on the infection time.
+            ConfigurationSection effectsSection = sessionSection.getConfigurationSection("effects");
+            PotionEffect[] sessionEffects = effectsSection == null && sessionInfectionTime == infectionTime
+                                            ? effects
+                                            : buildEffects(effectsSection != null ? effectsSection
+                                                                                  : config.getConfigurationSection("effects"),
+                                                           sessionInfectionTime, logger);
+
+            // Indices are taken from the top level strains, so they are the same in every session.
+            Strain sessionDefault = new Strain(StrainRegistry.DEFAULT_NAME, 0, sessionInfectionTime, radius,
+                                               sessionProtectionTime, sessionEffects);
+            StrainRegistry registry = new StrainRegistry(sessionDefault, config.getConfigurationSection("strains"),
+                                                         strains, logger);
+            registries.put(name.toLowerCase(), registry);
+
+            source.append(name).append(';').append(sessionInfectionTime).append(';').append(radius).append(';')
+                  .append(sessionProtectionTime).append(';').append(Arrays.toString(sessionEffects)).append(';')
+                  .append(registry.getSource()).append('|');
+        }
+
+        return registries;
+    }
+
+    static PotionEffect[] buildEffects(ConfigurationSection section, int infectionTime, Logger logger) {
+        List<PotionEffect> effects = Lists.newArrayList();
+        for (String key : section.getKeys(false)) {
+            ConfigurationSection effectSection = section.getConfigurationSection(key);
+
+            String effectName = effectSection.getString("type");
+            int duration = 20 * infectionTime;
+            int amplifier = effectSection.getInt("amplifier");
+
+            // Check if given PotionEffectType is valid.
+            PotionEffectType effectType = PotionEffectType.getByName(effectName);
+            if (effectType == null) {
+                logger.warning("Could not load PotionEffect: " + effectName);
+                logger.warning("Skipping...");
+                continue;
+            }
+
+            // Create potion effect.
+            PotionEffect potionEffect = new PotionEffect(effectType, duration, amplifier);
+
+            // Add effect to list.
+            effects.add(potionEffect);
+        }
+
+        return effects.toArray(new PotionEffect[0]);
+    }
+
+    private static EnumSet<EntityType> readMobTypes(List<String> names, Logger logger) {
+        EnumSet<EntityType> types = EnumSet.noneOf(EntityType.class);
+        for (String name : names) {
+            try {
+                types.add(EntityType.valueOf(name.toUpperCase()));
+            } catch (IllegalArgumentException ex) {
+                logger.warning("Could not load EntityType: " + name);
+            }
+        }
+
+        // Players are always handled separately.
+        types.remove(EntityType.PLAYER);
+        return types;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Changes ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Lists the keys whose values differ from another snapshot.
+     * @param previous Snapshot that was used before or null.
+     * @return Keys that changed.
+     */
+    public List<String> getChangedKeys(ConfigSnapshot previous) {
+        List<String> keys = Lists.newArrayList();
+        if (previous == null)
+            return keys;
+
+        addIfChanged(keys, "infection-time-seconds", infectionTime, previous.infectionTime);
+        addIfChanged(keys, "effects", effects, previous.effects);
+        addIfChanged(keys, "infection-radius", infectionRadius, previous.infectionRadius);
+        addIfChanged(keys, "protection-time-seconds", protectionTime, previous.protectionTime);
+        addIfChanged(keys, "infection-check-time-ticks", checkTime, previous.checkTime);
+        addIfChanged(keys, "infection-check-slices", checkSlices, previous.checkSlices);
+        addIfChanged(keys, "infection-check-budget-micros", checkBudgetMicros, previous.checkBudgetMicros);
+        addIfChanged(keys, "infection-check-async", asyncCheck, previous.asyncCheck);
+        addIfChanged(keys, "incremental-checks", incrementalChecks, previous.incrementalChecks);
+        addIfChanged(keys, "movement-threshold-blocks", movementThreshold, previous.movementThreshold);
+        addIfChanged(keys, "adaptive-check-enabled", adaptiveCheck, previous.adaptiveCheck);
+        addIfChanged(keys, "adaptive-check-target-mspt", adaptiveTargetMspt, previous.adaptiveTargetMspt);
+        addIfChanged(keys, "adaptive-check-max-time-ticks", adaptiveMaxCheckTime, previous.adaptiveMaxCheckTime);
+        addIfChanged(keys, "infection-while-in-air", allowInfectionInAir, previous.allowInfectionInAir);
+        addIfChanged(keys, "glow-enabled", allowGlow, previous.allowGlow);
+        addIfChanged(keys, "infection-broadcast-threshold", broadcastThreshold, previous.broadcastThreshold);
+        addIfChanged(keys, "persistence-enabled", persistence, previous.persistence);
+        addIfChanged(keys, "persistence-suspend-on-quit", suspendOnQuit, previous.suspendOnQuit);
+        addIfChanged(keys, "persistence-snapshot-seconds", snapshotInterval, previous.snapshotInterval);
+        addIfChanged(keys, "persistence-suspend-expiry-hours", suspendExpiry, previous.suspendExpiry);
+        addIfChanged(keys, "hot-reload-enabled", hotReload, previous.hotReload);
+        addIfChanged(keys, "hot-reload-delay-millis", hotReloadDelay, previous.hotReloadDelay);
+        addIfChanged(keys, "mob-infection-enabled", mobInfection, previous.mobInfection);
+        addIfChanged(keys, "mob-infection-types", mobTypes, previous.mobTypes);
+        addIfChanged(keys, "mob-infection-sources-per-check", mobSourcesPerCheck, previous.mobSourcesPerCheck);
+        addIfChanged(keys, "mob-index-refresh-per-check", mobIndexRefresh, previous.mobIndexRefresh);
+        addIfChanged(keys, "contact-trace-enabled", contactTrace, previous.contactTrace);
+        addIfChanged(keys, "contact-trace-capacity", contactTraceCapacity, previous.contactTraceCapacity);
+        addIfChanged(keys, "contact-trace-window-seconds", contactTraceWindow, previous.contactTraceWindow);
+        addIfChanged(keys, "strains", strains.getSource(), previous.strains.getSource());
+        addIfChanged(keys, "sessions", sessionSource, previous.sessionSource);
+
+        return keys;
+    }
+
+    private static void addIfChanged(List<String> keys, String key, Object value, Object previous) {
+        // Effects are compared by identity, they are reused while unchanged.
+        if (value instanceof PotionEffect[] ? value != previous : !value.equals(previous))
+            keys.add(key);
+    }
+
+    /**
+     * Check if the infection checker has to be restarted to apply this snapshot.
+     * @param previous Snapshot that was used before.
+     * @return True if the timing of the checks changed.
+     */
+    public boolean changesCheckTiming(ConfigSnapshot previous) {
+        return previous == null
+               || checkTime != previous.checkTime
+               || checkSlices != previous.checkSlices
+               || checkBudgetMicros != previous.checkBudgetMicros
+               || adaptiveCheck != previous.adaptiveCheck
+               || adaptiveTargetMspt != previous.adaptiveTargetMspt
+               || adaptiveMaxCheckTime != previous.adaptiveMaxCheckTime;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Effects of the infection. The array is shared, don't modify it.
+     */
+    public PotionEffect[] getEffects() {
+        return effects;
+    }
+
+    public double getInfectionRadius() {
+        return infectionRadius;
+    }
+
+    public int getCheckTime() {
+        return checkTime;
+    }
+
+    public int getCheckSlices() {
+        return checkSlices;
+    }
+
+    public int getCheckBudgetMicros() {
+        return checkBudgetMicros;
+    }
+
+    public int getProtectionTime() {
+        return protectionTime;
+    }
+
+    public int getInfectionTime() {
+        return infectionTime;
+    }
+
+    public boolean allowInfectionInAir() {
+        return allowInfectionInAir;
+    }
+
+    public boolean asyncCheckEnabled() {
+        return asyncCheck;
+    }
+
+    public boolean incrementalChecksEnabled() {
+        return incrementalChecks;
+    }
+
+    public double getMovementThreshold() {
+        return movementThreshold;
+    }
+
+    public boolean adaptiveCheckEnabled() {
+        return adaptiveCheck;
+    }
+
+    public double getAdaptiveTargetMspt() {
+        return adaptiveTargetMspt;
+    }
+
+    public int getAdaptiveMaxCheckTime() {
+        return adaptiveMaxCheckTime;
+    }
+
+    public boolean glowEnabled() {
+        return allowGlow;
+    }
+
+    public int getBroadcastThreshold() {
+        return broadcastThreshold;
+    }
+
+    public boolean persistenceEnabled() {
+        return persistence;
+    }
+
+    public boolean suspendOnQuitEnabled() {
+        return persistence && suspendOnQuit;
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public int getSuspendExpiry() {
+        return suspendExpiry;
+    }
+
+    public boolean hotReloadEnabled() {
+        return hotReload;
+    }
+
+    public int getHotReloadDelay() {
+        return hotReloadDelay;
+    }
+
+    public boolean mobInfectionEnabled() {
+        return mobInfection;
+    }
+
+    public boolean isInfectableMob(EntityType type) {
+        return mobTypes.contains(type);
+    }
+
+    public int getMobSourcesPerCheck() {
+        return mobSourcesPerCheck;
+    }
+
+    public int getMobIndexRefresh() {
+        return mobIndexRefresh;
+    }
+
+    public boolean contactTraceEnabled() {
+        return contactTrace;
+    }
+
+    public int getContactTraceCapacity() {
+        return contactTraceCapacity;
+    }
+
+    public int getContactTraceWindow() {
+        return contactTraceWindow;
+    }
+
+    public StrainRegistry getStrains() {
+        return strains;
+    }
+
+    /**
+     * Get the strains of a session.
+     * @param session Name of the session.
+     * @return Strains with the values of the session or the top level strains, if the session has no own values.
+     */
+    public StrainRegistry getStrains(String session) {
+        return sessionStrains.getOrDefault(session.toLowerCase(), strains);
+    }
+}
@@ -0,0 +1,142 @@
+package com.banarnia.infected.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches the data folder for changes of the configuration files.
+ * Editors and deployment tools often write a file several times, so changes are collected
+ * until the folder was quiet for the given delay and then reported at once.
+ */
+public class ConfigWatcher {
+
+    // Folder and names of the files to watch.
+    private final Path folder;
+    private final Set<String> fileNames;
+
+    // Milliseconds without further changes before the changes are reported.
+    private final long delayMillis;
+
+    // Receives the names of the changed files. Called on the watcher thread.
+    private final Consumer<Set<String>> callback;
+
+    private final Logger logger;
+
+    // Service of the running watcher or null.
+    private WatchService service;
+
+    /**
+     * Constructor
+     * @param folder Folder that contains the files.
+     * @param fileNames Names of the files to watch.
+     * @param delayMillis Milliseconds without further changes before the changes are reported.
+     * @param callback Receives the names of the changed files. Called on the watcher thread.
+     * @param logger Logger for errors.
+     */
+    public ConfigWatcher(Path folder, Set<String> fileNames, long delayMillis, Consumer<Set<String>> callback,
+                         Logger logger) {
+        this.folder = folder;
+        this.fileNames = fileNames;
+        this.delayMillis = Math.max(0, delayMillis);
+        this.callback = callback;
+        this.logger = logger;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Lifecycle ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Starts watching. A running watcher is stopped first.
+     * @return True if the folder is watched.
+     */
+    public boolean start() {
+        stop();
+
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            folder.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not watch the config files. Use /infected reload instead.", ex);
+            stop();
+            return false;
+        }
+
+        WatchService watched = service;
+        Thread thread = new Thread(() -> watch(watched), "Infected Config Watcher");
+        thread.setDaemon(true);
+        thread.start();
+
+        return true;
+    }
+
+    /**
+     * Stops watching. Changes that were not reported yet are dropped.
+     */
+    public void stop() {
+        if (service == null)
+            return;
+
+        try {
+            service.close();
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not close the config watcher.", ex);
+        }
+
+        service = null;
+    }
+
+    public boolean isRunning() {
+        return service != null;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Watching ~~~~~~~~~~~~~~~~~~~~
+
+    private void watch(WatchService service) {
+        Set<String> changed = new HashSet<>();
+
+        try {
+            while (true) {
+                // Wait for the first change, then until the folder is quiet.
+                WatchKey key = changed.isEmpty() ? service.take() : service.poll(delayMillis, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    callback.accept(changed);
+                    changed = new HashSet<>();
+                    continue;
+                }
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // Events were lost, so every file may have changed.
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        changed.addAll(fileNames);
+                        continue;
+                    }
+
+                    String name = ((Path) event.context()).getFileName().toString();
+                    if (fileNames.contains(name))
+                        changed.add(name);
+                }
+
+                // The folder itself is gone.
+                if (!key.reset()) {
+                    logger.warning("The config folder can not be watched anymore.");
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // Stopped.
+        } catch (RuntimeException ex) {
+            logger.log(Level.SEVERE, "The config watcher stopped unexpectedly.", ex);
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.banarnia.infected.config;
 
 import com.banarnia.infected.api.messages.IMessage;
-import org.bukkit.ChatColor;
+import com.banarnia.infected.api.messages.MessageTemplate;
 
 /**
  * This enumeration contains all messages that can be configured.
@@ -12,21 +12,29 @@ public enum Message implements IMessage {
 
     PLAYER_INFECTED_COMMAND("&a%target% &ehas been infected!"),
     PLAYER_INFECTED("&a%target% &ehas been infected by &6%player%&e!"),
+    PLAYER_INFECTED_SUMMARY("&a%targets% &ehave been infected!"),
+    PLAYER_INFECTED_SUMMARY_OTHERS(" &eand &a%count% others"),
     PLAYER_CURED("&eYou are cured from your §ainfection&e!"),
     PLAYER_PROTECTION_STARTS("&eYou will be protected from infections for &a%time% seconds&e!"),
     PLAYER_PROTECTION_RAN_OUT("&cYou are not protected from infections anymore!"),
     ERROR_PLAYER_ALREADY_INFECTED("§cThis player is already infected!"),
     ERROR_PLAYER_CANT_GET_INFECTED("§cThis player can't get infected!"),
-    ERROR_PLAYER_IS_NOT_INFECTED("§cThis player is not infected!");
+    ERROR_PLAYER_IS_NOT_INFECTED("§cThis player is not infected!"),
+    ERROR_UNKNOWN_STRAIN("§cThis strain does not exist!"),
+    ERROR_UNKNOWN_PLAYER("§cThis player does not exist!"),
+    ERROR_UNKNOWN_WORLD("§cThis world does not exist!"),
+    ERROR_UNKNOWN_SESSION("§cThis session does not exist!"),
+    ERROR_SESSION_ALREADY_EXISTS("§cThere already is a session with this name or in this world!"),
+    ERROR_TRACE_DISABLED("§cContact tracing is disabled!");
 
     // ~~~~~~~~~~~~~~~~~~~~ Methods ~~~~~~~~~~~~~~~~~~~~
 
     private String defaultMessage;
-    private String message;
+    private MessageTemplate template;
 
     Message(String defaultMessage) {
         this.defaultMessage = defaultMessage;
-        this.message = defaultMessage;
+        this.template = MessageTemplate.compile(defaultMessage);
     }
 
     @Override
@@ -41,11 +49,21 @@ public enum Message implements IMessage {
 
     @Override
     public String get() {
-        return ChatColor.translateAlternateColorCodes('&', message);
+        return template.render();
     }
 
     @Override
     public void set(String message) {
-        this.message = message;
+        this.template = MessageTemplate.compile(message);
+    }
+
+    @Override
+    public MessageTemplate getTemplate() {
+        return template;
+    }
+
+    @Override
+    public void setTemplate(MessageTemplate template) {
+        this.template = template;
     }
 }
@@ -0,0 +1,81 @@
+package com.banarnia.infected.config;
+
+import org.bukkit.potion.PotionEffect;
+
+/**
+ * One disease with its own radius, duration, effects and protection.
+ * The index is the bit of the strain in the strain sets of the state table. It stays the same across reloads.
+ */
+public final class Strain {
+
+    // Name in the config and bit in the strain sets.
+    private final String name;
+    private final int index;
+
+    // Values of the strain.
+    private final int infectionTime;
+    private final double infectionRadius;
+    private final int protectionTime;
+    private final PotionEffect[] effects;
+
+    // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Constructor
+     * @param name Name of the strain.
+     * @param index Bit of the strain in the strain sets.
+     * @param infectionTime Seconds the infection lasts.
+     * @param infectionRadius Radius to infect other players.
+     * @param protectionTime Seconds a player is protected from this strain after he was cured.
+     * @param effects Effects of the infection.
+     */
+    Strain(String name, int index, int infectionTime, double infectionRadius, int protectionTime, PotionEffect[] effects) {
+        this.name = name;
+        this.index = index;
+        this.infectionTime = infectionTime;
+        this.infectionRadius = infectionRadius;
+        this.protectionTime = protectionTime;
+        this.effects = effects;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Bit of the strain in the strain sets.
+     */
+    public long getMask() {
+        return 1L << index;
+    }
+
+    public int getInfectionTime() {
+        return infectionTime;
+    }
+
+    public double getInfectionRadius() {
+        return infectionRadius;
+    }
+
+    public int getProtectionTime() {
+        return protectionTime;
+    }
+
+    /**
+     * Effects of the infection. The array is shared, don't modify it.
+     */
+    public PotionEffect[] getEffects() {
+        return effects;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
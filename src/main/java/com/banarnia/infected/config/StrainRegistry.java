@@ -0,0 +1,205 @@
+package com.banarnia.infected.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.potion.PotionEffect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Immutable set of all strains of a config snapshot.
+ * The default strain is built from the top level values and always has the index 0.
+ * Further strains are read from the "strains" section. A strain keeps its index across reloads and the index of a
+ * removed strain is never given to another one, because players may still carry it until it expires.
+ */
+public final class StrainRegistry {
+
+    // Strain sets are longs, so there can't be more strains.
+    public static final int MAX_STRAINS = Long.SIZE;
+
+    // Name of the strain that is built from the top level values.
+    public static final String DEFAULT_NAME = "default";
+
+    // Strains by index. Removed strains leave a gap.
+    private final Strain[] strains;
+
+    // Names of all indices that were ever used, so removed indices are not given away.
+    private final String[] reserved;
+
+    // Strains by lower case name and their names.
+    private final Map<String, Strain> byName;
+    private final List<String> names;
+
+    // Bits of all strains, their radii by index and the largest radius.
+    private final long mask;
+    private final double[] radii;
+    private final double maxRadius;
+
+    // Values of the strains, to find changes.
+    private final String source;
+
+    // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Reads the strains. Missing values are taken from the default strain.
+     * @param defaultStrain Strain of the top level values.
+     * @param section Section with one sub-section per strain or null.
+     * @param previous Registry that is replaced or null. Its indices are kept.
+     * @param logger Logger for invalid values.
+     */
+    StrainRegistry(Strain defaultStrain, ConfigurationSection section, StrainRegistry previous, Logger logger) {
+        reserved = previous != null ? Arrays.copyOf(previous.reserved, MAX_STRAINS) : new String[MAX_STRAINS];
+        reserved[0] = DEFAULT_NAME;
+
+        Strain[] loaded = new Strain[MAX_STRAINS];
+        loaded[0] = defaultStrain;
+        StringBuilder source = new StringBuilder();
+
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection strainSection = section.getConfigurationSection(name);
+                if (strainSection == null || name.equalsIgnoreCase(DEFAULT_NAME)) {
+                    logger.warning("Could not load strain: " + name);
+                    continue;
+                }
+
+                int index = indexOf(name);
+                if (index == -1) {
+                    logger.warning("Could not load strain " + name + ", there can't be more than " + MAX_STRAINS + " strains.");
+                    continue;
+                }
+
+                // Missing values are taken from the default strain.
+                int infectionTime = strainSection.getInt("infection-time-seconds", defaultStrain.getInfectionTime());
+                double radius = strainSection.getDouble("infection-radius", defaultStrain.getInfectionRadius());
+                int protectionTime = strainSection.getInt("protection-time-seconds", defaultStrain.getProtectionTime());
+
+                ConfigurationSection effectsSection = strainSection.getConfigurationSection("effects");
+                PotionEffect[] effects = effectsSection != null
+                                         ? ConfigSnapshot.buildEffects(effectsSection, infectionTime, logger)
+                                         : defaultStrain.getEffects();
+
+                reserved[index] = name;
+                loaded[index] = new Strain(name, index, infectionTime, radius, protectionTime, effects);
+                source.append(name).append(';').append(infectionTime).append(';').append(radius).append(';')
+                      .append(protectionTime).append(';').append(Arrays.toString(effects)).append('|');
+            }
+        }
+
+        // Drop the empty tail.
+        int length = MAX_STRAINS;
+        while (loaded[length - 1] == null)
+            length--;
+        this.strains = Arrays.copyOf(loaded, length);
+
+        Map<String, Strain> byName = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        long mask = 0;
+        double[] radii = new double[strains.length];
+        double maxRadius = 0;
+        for (Strain strain : strains) {
+            if (strain == null)
+                continue;
+
+            radii[strain.getIndex()] = strain.getInfectionRadius();
+
+            byName.put(strain.getName().toLowerCase(), strain);
+            names.add(strain.getName());
+            mask |= strain.getMask();
+            maxRadius = Math.max(maxRadius, strain.getInfectionRadius());
+        }
+
+        this.byName = byName;
+        this.names = Collections.unmodifiableList(names);
+        this.mask = mask;
+        this.radii = radii;
+        this.maxRadius = maxRadius;
+        this.source = source.toString();
+    }
+
+    /**
+     * Get the index of a strain. New strains get the first index that was never used.
+     * @return Index or -1 if all indices are used.
+     */
+    private int indexOf(String name) {
+        for (int i = 1; i < MAX_STRAINS; i++) {
+            if (name.equals(reserved[i]))
+                return i;
+        }
+
+        for (int i = 1; i < MAX_STRAINS; i++) {
+            if (reserved[i] == null)
+                return i;
+        }
+
+        return -1;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Get the strain that is built from the top level values.
+     */
+    public Strain getDefault() {
+        return strains[0];
+    }
+
+    /**
+     * Get a strain by its index.
+     * @param index Index of the strain.
+     * @return Strain or null if there is no strain with this index.
+     */
+    public Strain get(int index) {
+        return index >= 0 && index < strains.length ? strains[index] : null;
+    }
+
+    /**
+     * Get a strain by its name. The case is ignored.
+     * @param name Name of the strain.
+     * @return Strain or null if it does not exist.
+     */
+    public Strain get(String name) {
+        return byName.get(name.toLowerCase());
+    }
+
+    /**
+     * Amount of indices. Some of them may be gaps of removed strains.
+     */
+    public int getIndexCount() {
+        return strains.length;
+    }
+
+    /**
+     * Names of all strains.
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Bits of all strains.
+     */
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * Infection radius of every strain by index. The array is shared, don't modify it.
+     */
+    public double[] getRadii() {
+        return radii;
+    }
+
+    public double getMaxRadius() {
+        return maxRadius;
+    }
+
+    String getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,64 @@
+package com.banarnia.infected.events;
+
+import com.banarnia.infected.api.events.BanarniaEvent;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Called when an entity that is not a player gets infected.
+ * Infections of players call the {@link InfectionEvent} instead.
+ * The event is only called if a listener is registered, because thousands of mobs may get infected.
+ */
+public class EntityInfectionEvent extends BanarniaEvent implements Cancellable {
+
+    private LivingEntity target;
+    private LivingEntity origin;
+    private boolean cancelled;
+
+    // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Constructor
+     * @param target Entity that got infected.
+     * @param origin Player or entity that infected the target or null if infected by command.
+     */
+    public EntityInfectionEvent(LivingEntity target, LivingEntity origin) {
+        this.target = target;
+        this.origin = origin;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Weird bukkit event thing ~~~~~~~~~~~~~~~~~~~~
+
+    // HandlerList
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean b) {
+        this.cancelled = b;
+    }
+
+    public LivingEntity getOrigin() {
+        return origin;
+    }
+
+    public LivingEntity getTarget() {
+        return target;
+    }
+}
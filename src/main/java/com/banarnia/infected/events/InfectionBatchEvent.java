@@ -0,0 +1,97 @@
+package com.banarnia.infected.events;
+
+import com.banarnia.infected.api.events.BanarniaEvent;
+import com.banarnia.infected.config.Strain;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Called once per check cycle with all infections that are planned in it. If the checks are sliced, the cycle
+ * ends with the last slice. Single entries can be cancelled. A {@link InfectionEvent} is still called for every entry that is not cancelled.
+ */
+public class InfectionBatchEvent extends BanarniaEvent {
+
+    private Player[] targets;
+    private Player[] origins;
+    private Strain[] strains;
+    private boolean[] cancelled;
+
+    // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Constructor
+     * @param targets Players that get infected.
+     * @param origins Players that infect the target with the same index.
+     * @param strains Strains of the infections with the same index.
+     */
+    public InfectionBatchEvent(Player[] targets, Player[] origins, Strain[] strains) {
+        if (targets.length != origins.length || targets.length != strains.length)
+            throw new IllegalArgumentException("Every target needs an origin and a strain.");
+
+        this.targets = targets;
+        this.origins = origins;
+        this.strains = strains;
+        this.cancelled = new boolean[targets.length];
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Weird bukkit event thing ~~~~~~~~~~~~~~~~~~~~
+
+    // HandlerList
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public int size() {
+        return targets.length;
+    }
+
+    public Player getTarget(int index) {
+        return targets[index];
+    }
+
+    public Player getOrigin(int index) {
+        return origins[index];
+    }
+
+    /**
+     * Get the strain of a planned infection.
+     * @param index Index of the infection.
+     * @return Strain of the infection.
+     */
+    public Strain getStrain(int index) {
+        return strains[index];
+    }
+
+    public boolean isCancelled(int index) {
+        return cancelled[index];
+    }
+
+    public void setCancelled(int index, boolean cancelled) {
+        this.cancelled[index] = cancelled;
+    }
+
+    /**
+     * Get all planned infections. The array must not be modified.
+     * @return Players that get infected.
+     */
+    public Player[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * Get the origins of all planned infections. The array must not be modified.
+     * @return Players that infect the target with the same index.
+     */
+    public Player[] getOrigins() {
+        return origins;
+    }
+}
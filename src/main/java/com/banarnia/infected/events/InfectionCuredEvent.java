@@ -1,12 +1,14 @@
 package com.banarnia.infected.events;
 
 import com.banarnia.infected.api.events.BanarniaEvent;
+import com.banarnia.infected.config.Strain;
 import com.banarnia.infected.events.InfectionEvent;
 import org.bukkit.entity.Player;
 import org.bukkit.event.HandlerList;
 
 public class InfectionCuredEvent extends BanarniaEvent {
     private Player player;
+    private Strain strain;
     private Cause cause;
 
     // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
@@ -17,7 +19,18 @@ public class InfectionCuredEvent extends BanarniaEvent {
      * @param cause Cause of cure.
      */
     public InfectionCuredEvent(Player player, Cause cause) {
+        this(player, null, cause);
+    }
+
+    /**
+     * Constructor
+     * @param player Player that got infected.
+     * @param strain Strain that was cured or null for the default strain.
+     * @param cause Cause of cure.
+     */
+    public InfectionCuredEvent(Player player, Strain strain, Cause cause) {
         this.player = player;
+        this.strain = strain;
         this.cause = cause;
     }
 
@@ -50,4 +63,12 @@ public class InfectionCuredEvent extends BanarniaEvent {
     public Cause getCause() {
         return cause;
     }
+
+    /**
+     * Get the strain that was cured.
+     * @return Strain or null for the default strain.
+     */
+    public Strain getStrain() {
+        return strain;
+    }
 }
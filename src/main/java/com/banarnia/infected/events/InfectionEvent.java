@@ -1,6 +1,8 @@
 package com.banarnia.infected.events;
 
 import com.banarnia.infected.api.events.BanarniaEvent;
+import com.banarnia.infected.config.Strain;
+import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Cancellable;
 import org.bukkit.event.HandlerList;
@@ -8,7 +10,8 @@ import org.bukkit.event.HandlerList;
 public class InfectionEvent extends BanarniaEvent implements Cancellable {
 
     private Player target;
-    private Player origin;
+    private LivingEntity origin;
+    private Strain strain;
     private Cause cause;
     private boolean cancelled;
 
@@ -17,30 +20,61 @@ public class InfectionEvent extends BanarniaEvent implements Cancellable {
     /**
      * Constructor
      * @param target Player that got infected.
-     * @param origin Player that infected the target.
+     * @param origin Player or mob that infected the target.
+     * @param strain Strain of the infection or null for the default strain.
      * @param cause Cause for the infection.
      */
-    public InfectionEvent(Player target, Player origin, Cause cause) {
+    public InfectionEvent(Player target, LivingEntity origin, Strain strain, Cause cause) {
         this.target = target;
         this.origin = origin;
+        this.strain = strain;
         this.cause = cause;
     }
 
+    /**
+     * Constructor
+     * @param target Player that got infected.
+     * @param origin Player or mob that infected the target.
+     * @param cause Cause for the infection.
+     */
+    public InfectionEvent(Player target, LivingEntity origin, Cause cause) {
+        this(target, origin, null, cause);
+    }
+
     /**
      * Constructor
      * @param target Player that got infected.
      * @param origin Player that infected the target.
+     * @param cause Cause for the infection.
      */
-    public InfectionEvent(Player target, Player origin) {
+    public InfectionEvent(Player target, Player origin, Cause cause) {
+        this(target, (LivingEntity) origin, cause);
+    }
+
+    /**
+     * Constructor
+     * @param target Player that got infected.
+     * @param origin Player or mob that infected the target.
+     */
+    public InfectionEvent(Player target, LivingEntity origin) {
         this(target, origin, Cause.INFECTION);
     }
 
+    /**
+     * Constructor
+     * @param target Player that got infected.
+     * @param origin Player that infected the target.
+     */
+    public InfectionEvent(Player target, Player origin) {
+        this(target, (LivingEntity) origin);
+    }
+
     /**
      * Constructor
      * @param target Player that got infected.
      */
     public InfectionEvent(Player target) {
-        this(target, null, Cause.COMMAND);
+        this(target, (Player) null, Cause.COMMAND);
     }
 
     // ~~~~~~~~~~~~~~~~~~~~ Enum for different causes ~~~~~~~~~~~~~~~~~~~~
@@ -79,11 +113,31 @@ public class InfectionEvent extends BanarniaEvent implements Cancellable {
         return cause;
     }
 
+    /**
+     * Get the player that infected the target.
+     * @return Player or null if infected by command or by a mob.
+     */
     public Player getOrigin() {
+        return origin instanceof Player ? (Player) origin : null;
+    }
+
+    /**
+     * Get the player or mob that infected the target.
+     * @return Origin or null if infected by command.
+     */
+    public LivingEntity getOriginEntity() {
         return origin;
     }
 
     public Player getTarget() {
         return target;
     }
+
+    /**
+     * Get the strain of the infection.
+     * @return Strain or null for the default strain.
+     */
+    public Strain getStrain() {
+        return strain;
+    }
 }
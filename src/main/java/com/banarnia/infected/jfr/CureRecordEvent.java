@@ -0,0 +1,27 @@
+package com.banarnia.infected.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a cure.
+ */
+@Name("com.banarnia.infected.Cure")
+@Label("Cure")
+@Description("A player was cured from the infection.")
+@Category("Infected")
+class CureRecordEvent extends Event {
+
+    // Type of the event. Tells if a recording has it enabled without creating an event.
+    static final EventType TYPE = EventType.getEventType(CureRecordEvent.class);
+
+    @Label("Player")
+    String player;
+
+    @Label("Cause")
+    String cause;
+}
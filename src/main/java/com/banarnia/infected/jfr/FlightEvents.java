@@ -0,0 +1,126 @@
+package com.banarnia.infected.jfr;
+
+import com.banarnia.infected.events.InfectionCuredEvent;
+import com.banarnia.infected.events.InfectionEvent;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+
+/**
+ * Emits Java Flight Recorder events, so infections show up in the same recording as GC and tick data.
+ * Events are only created while a recording has them enabled, so nothing is allocated otherwise. On runtimes without a flight recorder nothing happens.
+ * Events in progress are passed around as Object, so callers never load the event classes.
+ */
+public final class FlightEvents {
+
+    // True if the runtime has a flight recorder.
+    private static final boolean AVAILABLE = isAvailable();
+
+    private FlightEvents() {}
+
+    // ~~~~~~~~~~~~~~~~~~~~ Scan cycle ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Starts the event of a checker run.
+     * @return Event in progress or null if it is not recorded.
+     */
+    public static Object beginScan() {
+        if (!AVAILABLE || !ScanCycleEvent.TYPE.isEnabled())
+            return null;
+
+        ScanCycleEvent event = new ScanCycleEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends and commits the event of a checker run.
+     * @param scan Event returned by {@link #beginScan()}.
+     * @param tick Tick of the run.
+     * @param infected Infected players.
+     * @param tracked Players in the state table.
+     * @param pairs Pairs that were evaluated in this run.
+     */
+    public static void endScan(Object scan, long tick, int infected, int tracked, long pairs) {
+        if (scan == null)
+            return;
+
+        ScanCycleEvent event = (ScanCycleEvent) scan;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+
+        event.tick = tick;
+        event.infected = infected;
+        event.tracked = tracked;
+        event.pairs = pairs;
+        event.commit();
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Infection & Cure ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Starts the event of an infection.
+     * @return Event in progress or null if it is not recorded.
+     */
+    public static Object beginInfection() {
+        if (!AVAILABLE || !InfectionRecordEvent.TYPE.isEnabled())
+            return null;
+
+        InfectionRecordEvent event = new InfectionRecordEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends and commits the event of an infection.
+     * @param infection Event returned by {@link #beginInfection()}.
+     * @param target Player that got infected.
+     * @param origin Player or mob that infected him or null.
+     * @param cause Cause of the infection.
+     */
+    public static void endInfection(Object infection, Player target, LivingEntity origin, InfectionEvent.Cause cause) {
+        if (infection == null)
+            return;
+
+        InfectionRecordEvent event = (InfectionRecordEvent) infection;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+
+        event.target = target.getName();
+        event.origin = origin != null ? origin.getName() : null;
+        event.cause = cause.name();
+        event.distance = origin != null && origin.getWorld().equals(target.getWorld())
+                         ? origin.getLocation().distance(target.getLocation()) : -1;
+        event.commit();
+    }
+
+    /**
+     * Commits the event of a cure.
+     * @param player Player that got cured.
+     * @param cause Cause of the cure.
+     */
+    public static void cure(Player player, InfectionCuredEvent.Cause cause) {
+        if (!AVAILABLE || !CureRecordEvent.TYPE.isEnabled())
+            return;
+
+        CureRecordEvent event = new CureRecordEvent();
+        if (!event.shouldCommit())
+            return;
+
+        event.player = player.getName();
+        event.cause = cause.name();
+        event.commit();
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Internal ~~~~~~~~~~~~~~~~~~~~
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.banarnia.infected.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a single infection.
+ */
+@Name("com.banarnia.infected.Infection")
+@Label("Infection")
+@Description("A player got infected. The duration includes the event dispatch.")
+@Category("Infected")
+class InfectionRecordEvent extends Event {
+
+    // Type of the event. Tells if a recording has it enabled without creating an event.
+    static final EventType TYPE = EventType.getEventType(InfectionRecordEvent.class);
+
+    @Label("Target")
+    String target;
+
+    @Label("Origin")
+    String origin;
+
+    @Label("Cause")
+    String cause;
+
+    @Label("Distance")
+    @Description("Distance between origin and target in blocks or -1 if unknown.")
+    double distance;
+}
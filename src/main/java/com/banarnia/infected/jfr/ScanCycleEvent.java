@@ -0,0 +1,34 @@
+package com.banarnia.infected.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one run of the infection checker.
+ */
+@Name("com.banarnia.infected.ScanCycle")
+@Label("Infection Scan Cycle")
+@Description("One run of the infection checker, including expiries and infections.")
+@Category("Infected")
+class ScanCycleEvent extends Event {
+
+    // Type of the event. Tells if a recording has it enabled without creating an event.
+    static final EventType TYPE = EventType.getEventType(ScanCycleEvent.class);
+
+    @Label("Tick")
+    long tick;
+
+    @Label("Infected Players")
+    int infected;
+
+    @Label("Tracked Players")
+    int tracked;
+
+    @Label("Pairs")
+    @Description("Pairs of players that were evaluated in this run.")
+    long pairs;
+}
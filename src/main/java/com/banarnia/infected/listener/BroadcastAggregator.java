@@ -0,0 +1,100 @@
+package com.banarnia.infected.listener;
+
+import com.banarnia.infected.InfectionManager;
+import com.banarnia.infected.config.Message;
+import com.banarnia.infected.runnable.CheckScheduler;
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the infections of one tick and broadcasts them together on the next tick.
+ * If there are more infections in the tick than the threshold, they get one summarized message instead of one per target.
+ */
+public class BroadcastAggregator {
+
+    private InfectionManager manager;
+
+    // Scheduler that runs the broadcast.
+    private CheckScheduler scheduler;
+
+    // Names of infected players and of their origins in the order of the infections.
+    // Infections by command have the origin null.
+    private List<String> targets = new ArrayList<>();
+    private List<String> origins = new ArrayList<>();
+
+    // True if the broadcast of the pending infections is already scheduled.
+    private boolean scheduled;
+
+    /**
+     * Constructor
+     * @param manager Manager with the config.
+     * @param scheduler Scheduler that runs the broadcast.
+     */
+    public BroadcastAggregator(InfectionManager manager, CheckScheduler scheduler) {
+        this.manager = manager;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Adds an infection to the next broadcast.
+     * @param target Name of the infected player.
+     * @param origin Name of the player that infected him or null if infected by command.
+     */
+    public synchronized void add(String target, String origin) {
+        targets.add(target);
+        origins.add(origin);
+
+        if (scheduled)
+            return;
+
+        scheduled = true;
+        scheduler.runSync(this::flush);
+    }
+
+    /**
+     * Broadcasts all pending infections.
+     */
+    public void flush() {
+        List<String> targets;
+        List<String> origins;
+        synchronized (this) {
+            targets = this.targets;
+            origins = this.origins;
+            this.targets = new ArrayList<>();
+            this.origins = new ArrayList<>();
+            scheduled = false;
+        }
+
+        // Announce a few infections one by one.
+        int threshold = manager.getConfig().getSnapshot().getBroadcastThreshold();
+        if (targets.size() <= threshold) {
+            for (int i = 0; i < targets.size(); i++)
+                Bukkit.broadcastMessage(single(targets.get(i), origins.get(i)));
+
+            return;
+        }
+
+        Bukkit.broadcastMessage(summary(targets, Math.max(1, threshold)));
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Messages ~~~~~~~~~~~~~~~~~~~~
+
+    private static String single(String target, String origin) {
+        if (origin == null)
+            return Message.PLAYER_INFECTED_COMMAND.replace("%target%", target);
+
+        return Message.PLAYER_INFECTED.replace("%target%", target, "%player%", origin);
+    }
+
+    private static String summary(List<String> targets, int shown) {
+        // List the first names and count the rest.
+        StringBuilder names = new StringBuilder(String.join(", ", targets.subList(0, Math.min(shown, targets.size()))));
+        if (targets.size() > shown)
+            names.append(Message.PLAYER_INFECTED_SUMMARY_OTHERS
+                                 .replace("%count%", String.valueOf(targets.size() - shown)));
+
+        return Message.PLAYER_INFECTED_SUMMARY.replace("%targets%", names.toString());
+    }
+}
@@ -0,0 +1,82 @@
+package com.banarnia.infected.listener;
+
+import com.banarnia.infected.InfectionManager;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntitySpawnEvent;
+import org.bukkit.event.entity.EntityTransformEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+
+/**
+ * Keeps the entity index of the mob infections up to date.
+ * Spigot has no event for every removal of an entity. Deaths, transformations and unloaded chunks are handled here.
+ * Mobs that are removed otherwise, e.g. when they despawn, are dropped by the refresh of the index and their
+ * infection runs out.
+ */
+public class EntityListener implements Listener {
+
+    private InfectionManager manager;
+
+    public EntityListener(InfectionManager manager) {
+        this.manager = manager;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Spawn & Removal ~~~~~~~~~~~~~~~~~~~~
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void handleSpawn(EntitySpawnEvent event) {
+        if (event.getEntity() instanceof LivingEntity)
+            manager.getMobs().track((LivingEntity) event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void handleDeath(EntityDeathEvent event) {
+        // Players are handled by the infection listener.
+        if (event.getEntity() instanceof Player || !manager.mobInfectionEnabled())
+            return;
+
+        manager.getMobs().remove(event.getEntity().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void handleTransform(EntityTransformEvent event) {
+        if (event.getEntity() instanceof Player || !manager.mobInfectionEnabled())
+            return;
+
+        // The old mob is removed without dying, e.g. a villager that turns into a zombie villager.
+        manager.getMobs().remove(event.getEntity().getUniqueId());
+
+        for (Entity entity : event.getTransformedEntities()) {
+            if (entity instanceof LivingEntity)
+                manager.getMobs().track((LivingEntity) entity);
+        }
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Chunk loading ~~~~~~~~~~~~~~~~~~~~
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void handleEntitiesLoad(EntitiesLoadEvent event) {
+        if (!manager.mobInfectionEnabled())
+            return;
+
+        for (Entity entity : event.getEntities()) {
+            if (entity instanceof LivingEntity)
+                manager.getMobs().track((LivingEntity) entity);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void handleEntitiesUnload(EntitiesUnloadEvent event) {
+        if (manager.getMobs().getIndex().size() == 0)
+            return;
+
+        for (Entity entity : event.getEntities())
+            manager.getMobs().untrack(entity.getUniqueId());
+    }
+}
@@ -1,27 +1,38 @@
 package com.banarnia.infected.listener;
 
 import com.banarnia.infected.InfectionManager;
+import com.banarnia.infected.Main;
 import com.banarnia.infected.config.Message;
 import com.banarnia.infected.events.InfectionCuredEvent;
 import com.banarnia.infected.events.InfectionEvent;
 import com.banarnia.infected.events.ProtectionExpiredEvent;
-import org.bukkit.Bukkit;
+import com.banarnia.infected.runnable.CheckScheduler;
 import org.bukkit.Material;
 import org.bukkit.Sound;
+import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerGameModeChangeEvent;
 import org.bukkit.event.player.PlayerItemConsumeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 
 public class InfectionListener implements Listener {
 
     private InfectionManager manager;
 
+    // Collects infection messages.
+    private BroadcastAggregator broadcasts;
+
     public InfectionListener(InfectionManager manager) {
         this.manager = manager;
+        this.broadcasts = new BroadcastAggregator(manager, CheckScheduler.create(Main.getInstance()));
     }
 
     // ~~~~~~~~~~~~~~~~~~~~ Infection & Cure ~~~~~~~~~~~~~~~~~~~~
@@ -32,17 +43,17 @@ public class InfectionListener implements Listener {
         if (event.isCancelled())
             return;
 
-        Player player = event.getTarget();
-
-        // Send message.
-        String message = event.getOrigin() != null ? Message.PLAYER_INFECTED.get() :
-                                                     Message.PLAYER_INFECTED_COMMAND.get();
-        message = message.replace("%target%", event.getTarget().getName());
-
-        if (event.getOrigin() != null)
-            message = message.replace("%player%", event.getOrigin().getName());
+        announceInfection(event.getTarget(), event.getOriginEntity());
+    }
 
-        Bukkit.broadcastMessage(message);
+    /**
+     * Announces an infection. Called directly, if no other plugin listens to the infection event.
+     * @param player Player that got infected.
+     * @param origin Player or mob that infected him or null if infected by command.
+     */
+    public void announceInfection(Player player, LivingEntity origin) {
+        // Send message together with the other infections of this tick.
+        broadcasts.add(player.getName(), origin != null ? origin.getName() : null);
 
         // Play sound.
         player.playSound(player, Sound.AMBIENT_CAVE, 1.0f, 1.0f);
@@ -65,15 +76,17 @@ public class InfectionListener implements Listener {
             return;
 
         // Get message.
-        message = Message.PLAYER_PROTECTION_STARTS
-                         .replace("%time%", String.valueOf(manager.getConfig().getProtectionTime()));
+        int protectionTime = event.getStrain() != null ? event.getStrain().getProtectionTime()
+                                                       : manager.getConfig().getProtectionTime();
+        message = Message.PLAYER_PROTECTION_STARTS.replace("%time%", String.valueOf(protectionTime));
         player.sendMessage(message);
 
         // Play sound.
         player.playSound(player, Sound.ENTITY_PLAYER_LEVELUP, 1.0f, 1.0f);
 
-        // Disable glow.
-        player.setGlowing(false);
+        // Disable glow, unless he still carries another strain.
+        if (!manager.isInfected(player))
+            player.setGlowing(false);
     }
 
     @EventHandler
@@ -111,17 +124,55 @@ public class InfectionListener implements Listener {
         manager.cure(event.getEntity(), InfectionCuredEvent.Cause.DEATH);
     }
 
+    // ~~~~~~~~~~~~~~~~~~~~ Movement tracking ~~~~~~~~~~~~~~~~~~~~
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void handleMove(PlayerMoveEvent event) {
+        // Only needed for incremental checks.
+        if (!manager.getConfig().incrementalChecksEnabled())
+            return;
+
+        manager.getMovementTracker().handleMove(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void handleTeleport(PlayerTeleportEvent event) {
+        // Only needed for incremental checks.
+        if (!manager.getConfig().incrementalChecksEnabled())
+            return;
+
+        manager.getMovementTracker().handleMove(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void handleGameModeChange(PlayerGameModeChangeEvent event) {
+        manager.getMovementTracker().markChanged(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler
+    public void handleJoin(PlayerJoinEvent event) {
+        manager.handleJoin(event.getPlayer());
+    }
+
+    @EventHandler
+    public void handleWorldChange(PlayerChangedWorldEvent event) {
+        // Worlds of sessions are partitioned, so he leaves his old session.
+        manager.handleWorldChange(event.getPlayer());
+    }
+
     // ~~~~~~~~~~~~~~~~~~~~ Clean up on disconnect ~~~~~~~~~~~~~~~~~~~~
 
     @EventHandler
     public void handleQuit(PlayerQuitEvent event) {
-        // Check if player was infected.
-        if (!manager.isInfected(event.getPlayer()))
-            return;
-
-        // Cure player.
-        manager.cure(event.getPlayer(), InfectionCuredEvent.Cause.COMMAND);
-        manager.getProtectedPlayers().remove(event.getPlayer().getUniqueId());
+        // Cure player if he was infected, unless his state is kept until he rejoins.
+        // Only the global session keeps it.
+        boolean suspended = manager.getConfig().suspendOnQuitEnabled()
+                            && manager.sessionOf(event.getPlayer().getUniqueId()).isGlobal();
+        if (!suspended && manager.isInfected(event.getPlayer()))
+            manager.cure(event.getPlayer(), InfectionCuredEvent.Cause.COMMAND);
+
+        // Remove handle. Infection and protection are removed or kept for the rejoin.
+        manager.handleQuit(event.getPlayer());
     }
 
 }
@@ -0,0 +1,173 @@
+package com.banarnia.infected.metrics;
+
+import com.banarnia.infected.events.InfectionCuredEvent;
+import com.banarnia.infected.events.InfectionEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime metrics of the infection checks. Counters are lock-free and recording doesn't allocate,
+ * so they can be updated from the checker and from region threads at any time.
+ * Other plugins get the instance with {@code Main.getInstance().getInfectionManager().getMetrics()}.
+ */
+public class InfectionMetrics {
+
+    // Durations.
+    private final LatencyHistogram scanTime = new LatencyHistogram();
+    private final LatencyHistogram dispatchTime = new LatencyHistogram();
+
+    // Counters.
+    private final LongAdder pairs = new LongAdder();
+    private final LongAdder[] infections = adders(InfectionEvent.Cause.values().length);
+    private final LongAdder[] cures = adders(InfectionCuredEvent.Cause.values().length);
+    private final LongAdder mobInfections = new LongAdder();
+
+    // Sizes of the tracked sets at the last check.
+    private volatile int trackedPlayers;
+    private volatile int infectedPlayers;
+    private volatile int protectedPlayers;
+    private volatile int movingPlayers;
+    private volatile int infectedMobs;
+    private volatile int indexedMobs;
+
+    // ~~~~~~~~~~~~~~~~~~~~ Recording ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Records one run of the checker.
+     * @param nanos Duration of the run.
+     */
+    public void recordScan(long nanos) {
+        scanTime.record(nanos);
+    }
+
+    /**
+     * Records pairs of players that were evaluated for an infection.
+     * @param amount Amount of pairs.
+     */
+    public void recordPairs(int amount) {
+        pairs.add(amount);
+    }
+
+    public void recordInfection(InfectionEvent.Cause cause) {
+        infections[cause.ordinal()].increment();
+    }
+
+    public void recordCure(InfectionCuredEvent.Cause cause) {
+        cures[cause.ordinal()].increment();
+    }
+
+    public void recordMobInfection() {
+        mobInfections.increment();
+    }
+
+    /**
+     * Records how long an event took to reach all listeners.
+     * @param nanos Duration of the dispatch.
+     */
+    public void recordDispatch(long nanos) {
+        dispatchTime.record(nanos);
+    }
+
+    /**
+     * Stores the sizes of the tracked sets.
+     * @param tracked Players in the state table.
+     * @param infected Infected players.
+     * @param protectedCount Protected players.
+     * @param moving Players whose movement is tracked.
+     */
+    public void recordSizes(int tracked, int infected, int protectedCount, int moving) {
+        this.trackedPlayers = tracked;
+        this.infectedPlayers = infected;
+        this.protectedPlayers = protectedCount;
+        this.movingPlayers = moving;
+    }
+
+    /**
+     * Stores the sizes of the mob infections.
+     * @param infected Infected mobs.
+     * @param indexed Mobs in the entity index.
+     */
+    public void recordMobSizes(int infected, int indexed) {
+        this.infectedMobs = infected;
+        this.indexedMobs = indexed;
+    }
+
+    /**
+     * Removes all recorded values. Sizes stay until the next check.
+     */
+    public void reset() {
+        scanTime.reset();
+        dispatchTime.reset();
+        pairs.reset();
+        mobInfections.reset();
+
+        for (LongAdder adder : infections)
+            adder.reset();
+        for (LongAdder adder : cures)
+            adder.reset();
+    }
+
+    private static LongAdder[] adders(int amount) {
+        LongAdder[] adders = new LongAdder[amount];
+        for (int i = 0; i < amount; i++)
+            adders[i] = new LongAdder();
+
+        return adders;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Duration of every run of the checker in nanoseconds.
+     */
+    public LatencyHistogram getScanTime() {
+        return scanTime;
+    }
+
+    /**
+     * Duration of every infection and cure event dispatch in nanoseconds.
+     */
+    public LatencyHistogram getDispatchTime() {
+        return dispatchTime;
+    }
+
+    public long getPairs() {
+        return pairs.sum();
+    }
+
+    public long getInfections(InfectionEvent.Cause cause) {
+        return infections[cause.ordinal()].sum();
+    }
+
+    public long getCures(InfectionCuredEvent.Cause cause) {
+        return cures[cause.ordinal()].sum();
+    }
+
+    public long getMobInfections() {
+        return mobInfections.sum();
+    }
+
+    public int getTrackedPlayers() {
+        return trackedPlayers;
+    }
+
+    public int getInfectedPlayers() {
+        return infectedPlayers;
+    }
+
+    public int getProtectedPlayers() {
+        return protectedPlayers;
+    }
+
+    public int getMovingPlayers() {
+        return movingPlayers;
+    }
+
+    public int getInfectedMobs() {
+        return infectedMobs;
+    }
+
+    public int getIndexedMobs() {
+        return indexedMobs;
+    }
+}
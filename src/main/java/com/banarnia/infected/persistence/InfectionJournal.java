@@ -0,0 +1,427 @@
+package com.banarnia.infected.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of the infection state with compacted snapshots.
+ * Every file starts with a header that contains a generation. A journal only belongs to the snapshot with the same
+ * generation, so a crash while compacting never replays outdated records on top of a newer snapshot.
+ * Records have a fixed size and a checksum, so a record that was torn by a crash is detected and dropped.
+ * All disk I/O happens on a background thread. Callers only queue records.
+ * Records are written in batches and only forced to the disk by {@link #sync()}, so a crash loses the records
+ * since the last sync.
+ */
+public class InfectionJournal {
+
+    // File layout.
+    private static final int MAGIC = 0x494E464A;
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 1 + 4 * Long.BYTES + Integer.BYTES;
+
+    // Files.
+    private final File journalFile;
+    private final File snapshotFile;
+    private final File tempFile;
+
+    private final Logger logger;
+
+    // Writer thread. Tasks run in the order they were queued.
+    private final ThreadPoolExecutor writer;
+
+    // State of the writer thread.
+    private FileChannel journal;
+    private long generation;
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 128);
+    private final CRC32 crc = new CRC32();
+    private boolean failed;
+
+    // True if records were written to the journal since it was forced to the disk the last time.
+    private boolean unsynced;
+
+    /**
+     * Constructor
+     * @param folder Folder of the journal files.
+     * @param logger Logger for errors.
+     */
+    public InfectionJournal(File folder, Logger logger) {
+        this.journalFile = new File(folder, "infections.journal");
+        this.snapshotFile = new File(folder, "infections.snapshot");
+        this.tempFile = new File(folder, "infections.snapshot.tmp");
+        this.logger = logger;
+
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "Infected Journal Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Queueing ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Replays snapshot and journal and starts a new generation that only contains the result.
+     * Has to be called before any record is appended.
+     * @param callback Receives the state of every player. Called on the writer thread.
+     */
+    public void load(Consumer<Map<UUID, SavedState>> callback) {
+        writer.execute(() -> {
+            Map<UUID, SavedState> states = new HashMap<>();
+            try {
+                states = replay();
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Could not read the infection journal. Starting with an empty state.", ex);
+            }
+
+            // Start fresh files, so records of the old clock are never mixed with the new one.
+            List<JournalRecord> records = new ArrayList<>();
+            states.forEach((id, state) -> {
+                records.add(JournalRecord.suspended(id, state));
+                records.add(JournalRecord.suspendedSince(id, state));
+            });
+            writeSnapshot(records);
+
+            callback.accept(states);
+        });
+    }
+
+    /**
+     * Queues a record.
+     * @param record Record to append.
+     */
+    public void append(JournalRecord record) {
+        if (!writer.isShutdown())
+            writer.execute(() -> write(record));
+    }
+
+    /**
+     * Queues forcing all records that are written so far to the disk.
+     */
+    public void sync() {
+        if (!writer.isShutdown())
+            writer.execute(this::force);
+    }
+
+    /**
+     * Queues a compacted snapshot. Records that are queued afterwards go to the new journal.
+     * @param records Records that describe the complete state.
+     */
+    public void compact(List<JournalRecord> records) {
+        if (!writer.isShutdown())
+            writer.execute(() -> writeSnapshot(records));
+    }
+
+    /**
+     * Writes everything that is queued and closes the files.
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS))
+                logger.warning("The infection journal did not finish writing in time.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        closeJournal();
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Writing ~~~~~~~~~~~~~~~~~~~~
+
+    private void write(JournalRecord record) {
+        if (journal == null) {
+            if (!failed)
+                logger.warning("The infection journal is not open. Changes are not saved.");
+            failed = true;
+            return;
+        }
+
+        encode(record);
+
+        // Write the batch, once the buffer is full or nothing else is queued.
+        if (buffer.remaining() < RECORD_SIZE || writer.getQueue().isEmpty())
+            flush();
+    }
+
+    private void flush() {
+        if (journal == null || buffer.position() == 0)
+            return;
+
+        try {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                journal.write(buffer);
+
+            unsynced = true;
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Could not write the infection journal.", ex);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void force() {
+        flush();
+        if (journal == null || !unsynced)
+            return;
+
+        try {
+            journal.force(false);
+            unsynced = false;
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Could not write the infection journal.", ex);
+        }
+    }
+
+    private void writeSnapshot(List<JournalRecord> records) {
+        flush();
+        long next = generation + 1;
+
+        try {
+            Files.createDirectories(journalFile.getParentFile().toPath());
+
+            // Write the snapshot to a temporary file and replace the old one at once.
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeHeader(channel, next);
+                for (JournalRecord record : records) {
+                    encode(record);
+                    if (buffer.remaining() < RECORD_SIZE)
+                        drain(channel);
+                }
+                drain(channel);
+                channel.force(true);
+            }
+
+            try {
+                Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                           StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            // Start a new journal for the new snapshot.
+            closeJournal();
+            journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                                       StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            writeHeader(journal, next);
+            journal.force(true);
+            unsynced = false;
+
+            generation = next;
+            failed = false;
+        } catch (IOException ex) {
+            buffer.clear();
+            logger.log(Level.SEVERE, "Could not write the infection snapshot.", ex);
+        }
+    }
+
+    private void writeHeader(FileChannel channel, long generation) throws IOException {
+        buffer.clear();
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(generation);
+        drain(channel);
+    }
+
+    private void drain(FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+
+        buffer.clear();
+    }
+
+    private void encode(JournalRecord record) {
+        UUID id = record.getId();
+        int start = buffer.position();
+
+        buffer.put(record.getType());
+        buffer.putLong(id != null ? id.getMostSignificantBits() : 0);
+        buffer.putLong(id != null ? id.getLeastSignificantBits() : 0);
+        buffer.putLong(record.getFirst());
+        buffer.putLong(record.getSecond());
+
+        crc.reset();
+        crc.update(buffer.array(), start, RECORD_SIZE - Integer.BYTES);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private void closeJournal() {
+        if (journal == null)
+            return;
+
+        force();
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not close the infection journal.", ex);
+        }
+        journal = null;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Replay ~~~~~~~~~~~~~~~~~~~~
+
+    private Map<UUID, SavedState> replay() throws IOException {
+        Map<UUID, Entry> entries = new HashMap<>();
+        long[] clock = new long[1];
+
+        // The journal only continues the snapshot of the same generation.
+        long snapshotGeneration = read(snapshotFile, -1, entries, clock);
+        long journalGeneration = read(journalFile, snapshotGeneration, entries, clock);
+        generation = Math.max(Math.max(snapshotGeneration, journalGeneration), 0);
+
+        // Remaining times are measured against the last known tick.
+        Map<UUID, SavedState> states = new HashMap<>();
+        for (Map.Entry<UUID, Entry> entry : entries.entrySet()) {
+            SavedState state = entry.getValue().toState(clock[0]);
+            if (!state.isEmpty())
+                states.put(entry.getKey(), state);
+        }
+
+        return states;
+    }
+
+    /**
+     * Applies all records of a file.
+     * @return Generation of the file or -1 if it doesn't exist or belongs to another generation.
+     */
+    private long read(File file, long expectedGeneration, Map<UUID, Entry> entries, long[] clock) throws IOException {
+        if (!file.exists())
+            return -1;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            // Check header.
+            long generation;
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                    throw new IOException("Unknown format of " + file.getName());
+
+                generation = in.readLong();
+            } catch (EOFException ex) {
+                return -1;
+            }
+
+            if (expectedGeneration != -1 && generation != expectedGeneration)
+                return -1;
+
+            byte[] bytes = new byte[RECORD_SIZE];
+            ByteBuffer record = ByteBuffer.wrap(bytes);
+            while (true) {
+                try {
+                    in.readFully(bytes);
+                } catch (EOFException ex) {
+                    // Torn record at the end.
+                    break;
+                }
+
+                crc.reset();
+                crc.update(bytes, 0, RECORD_SIZE - Integer.BYTES);
+                record.clear();
+                if (record.getInt(RECORD_SIZE - Integer.BYTES) != (int) crc.getValue()) {
+                    logger.warning("Dropping damaged records at the end of " + file.getName() + ".");
+                    break;
+                }
+
+                byte type = record.get();
+                UUID id = new UUID(record.getLong(), record.getLong());
+                apply(entries, clock, JournalRecord.of(type, id, record.getLong(), record.getLong()));
+            }
+
+            return generation;
+        }
+    }
+
+    private static void apply(Map<UUID, Entry> entries, long[] clock, JournalRecord record) {
+        if (record.getType() == JournalRecord.CLOCK) {
+            clock[0] = record.getFirst();
+            return;
+        }
+
+        if (record.getType() == JournalRecord.REMOVED) {
+            entries.remove(record.getId());
+            return;
+        }
+
+        Entry entry = entries.computeIfAbsent(record.getId(), id -> new Entry());
+        switch (record.getType()) {
+            case JournalRecord.INFECTION:
+                entry.resume();
+                entry.infection = record.getFirst();
+                break;
+            case JournalRecord.PROTECTION:
+                entry.resume();
+                entry.protection = record.getFirst();
+                break;
+            case JournalRecord.INFECTION_CLEARED:
+                entry.infection = 0;
+                break;
+            case JournalRecord.PROTECTION_CLEARED:
+                entry.protection = 0;
+                break;
+            case JournalRecord.SUSPENDED:
+                entry.suspended = true;
+                entry.infection = record.getFirst();
+                entry.protection = record.getSecond();
+                entry.suspendedAt = 0;
+                break;
+            case JournalRecord.SUSPENDED_SINCE:
+                entry.suspendedAt = record.getFirst();
+                break;
+        }
+    }
+
+    /**
+     * State of a player while replaying.
+     */
+    private static class Entry {
+
+        // Deadlines or remaining ticks, if suspended.
+        private long infection;
+        private long protection;
+        private boolean suspended;
+
+        // Wall clock time when the player left. 0 if unknown.
+        private long suspendedAt;
+
+        /**
+         * Suspended players only get new deadlines after they rejoined, which drops the suspended state.
+         */
+        private void resume() {
+            if (!suspended)
+                return;
+
+            suspended = false;
+            infection = 0;
+            protection = 0;
+        }
+
+        private SavedState toState(long tick) {
+            // States of older journals count as saved now.
+            if (suspended)
+                return new SavedState(infection, protection, suspendedAt != 0 ? suspendedAt : System.currentTimeMillis());
+
+            return new SavedState(infection != 0 ? infection - tick : 0, protection != 0 ? protection - tick : 0);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.banarnia.infected.persistence;
+
+import java.util.UUID;
+
+/**
+ * One change of the infection state. Records are written to the journal in the order they happened.
+ * Deadlines are ticks of the plugin clock, remaining times are tick counts.
+ */
+public class JournalRecord {
+
+    // Types of records.
+    public static final byte INFECTION = 1;
+    public static final byte PROTECTION = 2;
+    public static final byte INFECTION_CLEARED = 3;
+    public static final byte PROTECTION_CLEARED = 4;
+    public static final byte SUSPENDED = 5;
+    public static final byte REMOVED = 6;
+    public static final byte CLOCK = 7;
+    public static final byte SUSPENDED_SINCE = 8;
+
+    private final byte type;
+    private final UUID id;
+    private final long first;
+    private final long second;
+
+    private JournalRecord(byte type, UUID id, long first, long second) {
+        this.type = type;
+        this.id = id;
+        this.first = first;
+        this.second = second;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Static instance creation ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * A player got infected.
+     * @param id UUID of the player.
+     * @param deadline Tick when the infection expires.
+     */
+    public static JournalRecord infection(UUID id, long deadline) {
+        return new JournalRecord(INFECTION, id, deadline, 0);
+    }
+
+    /**
+     * A player got protected.
+     * @param id UUID of the player.
+     * @param deadline Tick when the protection expires.
+     */
+    public static JournalRecord protection(UUID id, long deadline) {
+        return new JournalRecord(PROTECTION, id, deadline, 0);
+    }
+
+    public static JournalRecord infectionCleared(UUID id) {
+        return new JournalRecord(INFECTION_CLEARED, id, 0, 0);
+    }
+
+    public static JournalRecord protectionCleared(UUID id) {
+        return new JournalRecord(PROTECTION_CLEARED, id, 0, 0);
+    }
+
+    /**
+     * The state of a player is kept while he is offline.
+     * @param id UUID of the player.
+     * @param state Remaining infection and protection.
+     */
+    public static JournalRecord suspended(UUID id, SavedState state) {
+        return new JournalRecord(SUSPENDED, id, state.getInfectionTicks(), state.getProtectionTicks());
+    }
+
+    /**
+     * Wall clock time when the state of a player was suspended. Follows his suspended record.
+     * @param id UUID of the player.
+     * @param state Remaining infection and protection.
+     */
+    public static JournalRecord suspendedSince(UUID id, SavedState state) {
+        return new JournalRecord(SUSPENDED_SINCE, id, state.getSavedAt(), 0);
+    }
+
+    /**
+     * Everything about a player was dropped.
+     * @param id UUID of the player.
+     */
+    public static JournalRecord removed(UUID id) {
+        return new JournalRecord(REMOVED, id, 0, 0);
+    }
+
+    /**
+     * Current tick of the plugin clock. Remaining times are computed against the last one.
+     * @param tick Current tick.
+     */
+    public static JournalRecord clock(long tick) {
+        return new JournalRecord(CLOCK, null, tick, 0);
+    }
+
+    /**
+     * Reads a record.
+     */
+    static JournalRecord of(byte type, UUID id, long first, long second) {
+        return new JournalRecord(type, id, first, second);
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public byte getType() {
+        return type;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public long getFirst() {
+        return first;
+    }
+
+    public long getSecond() {
+        return second;
+    }
+}
@@ -0,0 +1,56 @@
+package com.banarnia.infected.persistence;
+
+/**
+ * Remaining infection and protection of a player that is not online.
+ */
+public class SavedState {
+
+    private final long infectionTicks;
+    private final long protectionTicks;
+
+    // Wall clock time in milliseconds when the state was saved.
+    private final long savedAt;
+
+    /**
+     * Constructor
+     * @param infectionTicks Remaining ticks of the infection. 0 if not infected.
+     * @param protectionTicks Remaining ticks of the protection. 0 if not protected.
+     */
+    public SavedState(long infectionTicks, long protectionTicks) {
+        this(infectionTicks, protectionTicks, System.currentTimeMillis());
+    }
+
+    /**
+     * Constructor
+     * @param infectionTicks Remaining ticks of the infection. 0 if not infected.
+     * @param protectionTicks Remaining ticks of the protection. 0 if not protected.
+     * @param savedAt Wall clock time in milliseconds when the state was saved.
+     */
+    public SavedState(long infectionTicks, long protectionTicks, long savedAt) {
+        this.infectionTicks = Math.max(0, infectionTicks);
+        this.protectionTicks = Math.max(0, protectionTicks);
+        this.savedAt = savedAt;
+    }
+
+    /**
+     * Check if there is anything left to restore.
+     * @return True if the player is still infected or protected.
+     */
+    public boolean isEmpty() {
+        return infectionTicks == 0 && protectionTicks == 0;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public long getInfectionTicks() {
+        return infectionTicks;
+    }
+
+    public long getProtectionTicks() {
+        return protectionTicks;
+    }
+
+    public long getSavedAt() {
+        return savedAt;
+    }
+}
@@ -0,0 +1,120 @@
+package com.banarnia.infected.runnable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Adapts the delay between infection checks to the load of the server.
+ * The delay is doubled while the server is slower than the target and halved again once there is headroom.
+ */
+public class AdaptiveInterval {
+
+    // Minimum time between two adjustments.
+    private static final long COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    // Weight of a new run in the moving average.
+    private static final double SMOOTHING = 0.1;
+
+    private TickMonitor monitor;
+    private Logger logger;
+
+    // Settings
+    private boolean enabled;
+    private double targetMspt;
+    private int baseCheckTime;
+    private int maxCheckTime;
+
+    // State
+    private int checkTime;
+    private int level;
+    private long adjustments;
+    private long lastAdjustment;
+    private double averageRunNanos;
+
+    /**
+     * Constructor
+     * @param monitor Monitor for the server tick time.
+     * @param logger Logger for adjustments.
+     */
+    public AdaptiveInterval(TickMonitor monitor, Logger logger) {
+        this.monitor = monitor;
+        this.logger = logger;
+    }
+
+    /**
+     * Applies new settings and resets the delay to the configured one.
+     * @param enabled True if the delay should adapt.
+     * @param baseCheckTime Configured ticks between two checks.
+     * @param maxCheckTime Maximum ticks between two checks.
+     * @param targetMspt Target milliseconds per tick.
+     */
+    public void reset(boolean enabled, int baseCheckTime, int maxCheckTime, double targetMspt) {
+        this.enabled = enabled;
+        this.baseCheckTime = Math.max(1, baseCheckTime);
+        this.maxCheckTime = Math.max(this.baseCheckTime, maxCheckTime);
+        this.targetMspt = targetMspt;
+        this.checkTime = this.baseCheckTime;
+        this.level = 0;
+        this.lastAdjustment = System.nanoTime();
+    }
+
+    /**
+     * Records the duration of a run and adjusts the delay if needed.
+     * @param runNanos Nanoseconds the run took.
+     * @return True if the delay changed.
+     */
+    public boolean update(long runNanos) {
+        averageRunNanos += (runNanos - averageRunNanos) * SMOOTHING;
+
+        if (!enabled)
+            return false;
+
+        long now = System.nanoTime();
+        if (now - lastAdjustment < COOLDOWN_NANOS)
+            return false;
+
+        int previous = checkTime;
+
+        // Stretch while overloaded, tighten again when there is headroom.
+        if (monitor.isOverloaded(targetMspt) && checkTime < maxCheckTime)
+            level++;
+        else if (monitor.hasHeadroom(targetMspt) && level > 0)
+            level--;
+        else
+            return false;
+
+        checkTime = (int) Math.min(maxCheckTime, (long) baseCheckTime << level);
+        adjustments++;
+        lastAdjustment = now;
+
+        logger.info(String.format("Server at %.1f mspt (target %.1f), checks took %.3f ms. Infection check time: %d -> %d ticks.",
+                                  monitor.getMspt(), targetMspt, averageRunNanos / 1_000_000.0, previous, checkTime));
+        return true;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCheckTime() {
+        return checkTime;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public long getAdjustments() {
+        return adjustments;
+    }
+
+    public double getAverageRunNanos() {
+        return averageRunNanos;
+    }
+
+    public double getServerMspt() {
+        return monitor.getMspt();
+    }
+}
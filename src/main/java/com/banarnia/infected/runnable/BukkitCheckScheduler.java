@@ -0,0 +1,57 @@
+package com.banarnia.infected.runnable;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Scheduler for servers with one main thread.
+ */
+public class BukkitCheckScheduler implements CheckScheduler {
+
+    private Plugin plugin;
+
+    // Task ID
+    private int taskID = -1;
+
+    /**
+     * Constructor
+     * @param plugin Plugin that owns the tasks.
+     */
+    public BukkitCheckScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void start(Runnable task, long period) {
+        stop();
+
+        taskID = Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, task, 0, period);
+    }
+
+    @Override
+    public void stop() {
+        if (taskID == -1)
+            return;
+
+        Bukkit.getScheduler().cancelTask(taskID);
+        taskID = -1;
+    }
+
+    @Override
+    public void runSync(Runnable task) {
+        if (plugin.isEnabled())
+            Bukkit.getScheduler().runTask(plugin, task);
+    }
+
+    @Override
+    public void runFor(Player player, Runnable task, Runnable retired) {
+        // There is only the main thread.
+        task.run();
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+}
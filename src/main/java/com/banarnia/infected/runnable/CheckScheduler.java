@@ -0,0 +1,72 @@
+package com.banarnia.infected.runnable;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Abstraction of the scheduler that runs the infection checks.
+ */
+public interface CheckScheduler {
+
+    /**
+     * Starts a repeating task. A previous task is stopped first.
+     * @param task Task to run.
+     * @param period Ticks between two runs.
+     */
+    void start(Runnable task, long period);
+
+    /**
+     * Stops the repeating task.
+     */
+    void stop();
+
+    /**
+     * Runs a task on the next tick on the thread that owns the global state.
+     * @param task Task to run.
+     */
+    void runSync(Runnable task);
+
+    /**
+     * Runs a task on the thread that owns a player.
+     * @param player Player whose thread should run the task.
+     * @param task Task to run.
+     */
+    default void runFor(Player player, Runnable task) {
+        runFor(player, task, null);
+    }
+
+    /**
+     * Runs a task on the thread that owns a player.
+     * @param player Player whose thread should run the task.
+     * @param task Task to run.
+     * @param retired Task that runs instead, if the player is removed before the task runs. May be null.
+     */
+    void runFor(Player player, Runnable task, Runnable retired);
+
+    /**
+     * Check if players are ticked by different region threads.
+     * @return True if the server is region threaded.
+     */
+    boolean isRegionized();
+
+    // ~~~~~~~~~~~~~~~~~~~~ Static instance creation ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Creates the scheduler that fits the server.
+     * Region threaded servers get a {@link RegionCheckScheduler}, every other server a {@link BukkitCheckScheduler}.
+     * @param plugin Plugin that owns the tasks.
+     * @return Scheduler instance.
+     */
+    static CheckScheduler create(Plugin plugin) {
+        if (!RegionCheckScheduler.isSupported())
+            return new BukkitCheckScheduler(plugin);
+
+        try {
+            return new RegionCheckScheduler(plugin);
+        } catch (ReflectiveOperationException ex) {
+            plugin.getLogger().warning("Could not access the region scheduler: " + ex.getMessage());
+            plugin.getLogger().warning("Falling back to the Bukkit scheduler...");
+            return new BukkitCheckScheduler(plugin);
+        }
+    }
+}
@@ -2,33 +2,104 @@ package com.banarnia.infected.runnable;
 
 import com.banarnia.infected.InfectionManager;
 import com.banarnia.infected.Main;
+import com.banarnia.infected.config.ConfigSnapshot;
+import com.banarnia.infected.config.Strain;
+import com.banarnia.infected.config.StrainRegistry;
+import com.banarnia.infected.events.InfectionBatchEvent;
 import com.banarnia.infected.events.InfectionCuredEvent;
 import com.banarnia.infected.events.InfectionEvent;
 import com.banarnia.infected.events.ProtectionExpiredEvent;
-import org.bukkit.Bukkit;
-import org.bukkit.GameMode;
+import com.banarnia.infected.jfr.FlightEvents;
+import com.banarnia.infected.session.InfectionSession;
+import com.banarnia.infected.tracking.ContactTrace;
+import com.banarnia.infected.tracking.InfectionPairs;
+import com.banarnia.infected.tracking.MovementTracker;
+import com.banarnia.infected.tracking.PlayerStateTable;
+import com.banarnia.infected.tracking.PositionSnapshot;
+import com.banarnia.infected.tracking.ProximityComputer;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This runnable check the infection periodically.
+ * Every session has its own checker, which only touches the players of the session.
  */
 public class InfectionChecker implements Runnable {
 
-    // Manager
+    // Manager and the session that is checked.
     private InfectionManager manager;
+    private InfectionSession session;
 
-    // Task ID
-    private int taskID = -1;
+    // Scheduler that runs the checks.
+    private CheckScheduler scheduler;
+
+    // Adapts the check time to the server load.
+    private TickMonitor tickMonitor = new TickMonitor();
+    private AdaptiveInterval adaptiveInterval;
+
+    // Spreads the infection to mobs once per check time. Only used by the global session.
+    private MobScanner mobScanner;
+    private long lastMobScan;
+
+    // Infected players of the current slice. Index of the next player to check.
+    private Player[] sources = new Player[16];
+    private int sourceCount;
+    private int sourceIndex;
+
+    // Time slicing. Infected players are split into buckets, which are checked one after another.
+    private int slices = 1;
+    private int sliceInterval = 1;
+    private int runsSinceSlice;
+    private int currentSlice;
+
+    // Positions of the current run, the infections that were found and the contacts that are traced.
+    private PositionSnapshot snapshot = new PositionSnapshot();
+    private InfectionPairs pairs = new InfectionPairs();
+    private InfectionPairs contacts = new InfectionPairs();
+    private ProximityComputer computer = new ProximityComputer();
+
+    // Infections of the current check cycle that are passed to the manager together, once the last slice is done.
+    // Strains that are planned for every target. Guarded by plannedMasks, because region threads plan concurrently.
+    private Player[] plannedTargets = new Player[16];
+    private Player[] plannedOrigins = new Player[16];
+    private Strain[] plannedStrains = new Strain[16];
+    private int plannedCount;
+    private final Map<UUID, Long> plannedMasks = new HashMap<>();
+
+    // Region tasks of the current cycle that did not finish yet, plus one while the cycle is dispatched.
+    private final AtomicInteger regionTasks = new AtomicInteger();
+    private boolean regionCycleOpen;
+
+    // Worker for the asynchronous computation. While computing, the worker owns snapshot and pairs.
+    private ExecutorService worker;
+    private boolean computing;
+
+    // Increased on every restart, so results of an older configuration are dropped.
+    private int generation;
+
+    // Reused location to avoid allocations.
+    private Location location = new Location(null, 0, 0, 0);
 
     /**
      * Constructor
      * @param manager Instance of the Manager class.
+     * @param session Session that is checked.
      */
-    public InfectionChecker(InfectionManager manager) {
+    public InfectionChecker(InfectionManager manager, InfectionSession session) {
         this.manager = manager;
+        this.session = session;
+        this.scheduler = CheckScheduler.create(Main.getInstance());
+        this.adaptiveInterval = new AdaptiveInterval(tickMonitor, Main.getInstance().getLogger());
+        this.mobScanner = session.isGlobal() ? new MobScanner(manager) : null;
     }
 
     /**
@@ -38,21 +109,64 @@ public class InfectionChecker implements Runnable {
         // Stop task.
         stop();
 
-        // Get repeat delay.
-        int checkTime = manager.getConfig().getCheckTime();
+        ConfigSnapshot config = manager.getConfig().getSnapshot();
+
+        // Reset slices and the adaptive check time.
+        resetSlices();
+        generation++;
+
+        // Adaptive check time is only supported with one main thread.
+        boolean adaptive = config.adaptiveCheckEnabled() && !scheduler.isRegionized();
+        if (config.adaptiveCheckEnabled() && scheduler.isRegionized() && session.isGlobal())
+            Main.getInstance().getLogger().warning("adaptive-check-enabled has no effect on region threaded servers.");
+        adaptiveInterval.reset(adaptive, config.getCheckTime(), config.getAdaptiveMaxCheckTime(),
+                               config.getAdaptiveTargetMspt());
+
+        if (adaptive)
+            tickMonitor.start(Main.getInstance());
 
         // Start task.
-        taskID = Bukkit.getScheduler().scheduleSyncRepeatingTask(Main.getInstance(), this, 0, checkTime);
+        schedule();
+    }
+
+    /**
+     * Starts the task with the current check time.
+     * In sliced mode the task runs every tick and starts a new slice every few ticks.
+     * Unfinished slices continue on the next tick.
+     */
+    private void schedule() {
+        // Get repeat delay.
+        int checkTime = adaptiveInterval.getCheckTime();
+        ConfigSnapshot config = manager.getConfig().getSnapshot();
+
+        slices = Math.max(1, config.getCheckSlices());
+        boolean sliced = slices > 1 || config.getCheckBudgetMicros() > 0;
+
+        // Unsliced tasks already run once per check time, so every run starts a new slice.
+        sliceInterval = sliced ? Math.max(1, checkTime / slices) : 1;
+
+        scheduler.start(this, sliced ? 1 : checkTime);
     }
 
     /**
      * Stops the task.
      */
     public void stop() {
-        if (taskID == -1)
-            return;
+        scheduler.stop();
+        tickMonitor.stop();
+    }
+
+    /**
+     * Stops the task and the worker thread.
+     */
+    public void shutdown() {
+        stop();
 
-        Bukkit.getScheduler().cancelTask(taskID);
+        // Drop the result that is still computed.
+        generation++;
+
+        if (worker != null)
+            worker.shutdownNow();
     }
 
     /**
@@ -62,51 +176,563 @@ public class InfectionChecker implements Runnable {
      */
     @Override
     public void run() {
-        for (Map.Entry<UUID, Long> entry : manager.getInfectedPlayers().entrySet()) {
+        long start = System.nanoTime();
+        long tick = manager.getClock().getTick();
+
+        // Record the run for the flight recorder, if it is enabled.
+        Object scan = FlightEvents.beginScan();
+        long pairsBefore = scan != null ? manager.getMetrics().getPairs() : 0;
+
+        check(tick);
+
+        // Mobs can only be accessed from the main thread, so they are not scanned on regionized servers.
+        if (mobScanner != null && !scheduler.isRegionized() && tick - lastMobScan >= adaptiveInterval.getCheckTime()) {
+            lastMobScan = tick;
+            mobScanner.run(tick);
+        }
+
+        long runNanos = System.nanoTime() - start;
+        manager.getMetrics().recordScan(runNanos);
+
+        if (scan != null)
+            FlightEvents.endScan(scan, tick, manager.getMetrics().getInfectedPlayers(),
+                                 manager.getMetrics().getTrackedPlayers(), manager.getMetrics().getPairs() - pairsBefore);
+
+        // Stretch or tighten the check time depending on the server load.
+        if (adaptiveInterval.update(runNanos))
+            schedule();
+    }
+
+    /**
+     * Runs one check.
+     * @param now Current tick.
+     */
+    private void check(long now) {
+        // Handle expired infections and protections first.
+        handleExpiries(now);
+
+        // Wait until the worker is done with the last snapshot.
+        if (computing)
+            return;
+
+        // Start the next slice, if the last one is finished and it is time for a new one.
+        if (sourceIndex >= sourceCount) {
+            if (++runsSinceSlice < sliceInterval)
+                return;
+
+            runsSinceSlice = 0;
+
+            // The first slice starts a new cycle.
+            if (currentSlice == 0 && scheduler.isRegionized())
+                openRegionCycle();
+
+            collectSources(currentSlice);
+            currentSlice = (currentSlice + 1) % slices;
+        }
+
+        // Check if there is anything to do.
+        if (sourceIndex >= sourceCount) {
+            finishSlice();
+            return;
+        }
+
+        // Let every region check its own players.
+        if (scheduler.isRegionized()) {
+            dispatchToRegions();
+            finishSlice();
+            return;
+        }
+
+        ConfigSnapshot config = manager.getConfig().getSnapshot();
+        StrainRegistry strains = manager.getStrains(session);
+        boolean traced = manager.getTrace() != null;
+        long start = System.nanoTime();
+
+        // Copy positions and states.
+        captureSnapshot(now, strains.getMask(), traced);
+
+        // Compute the infections on the worker and apply them on the next tick.
+        if (config.asyncCheckEnabled()) {
+            computeAsync(strains, config.allowInfectionInAir(), traced);
+            return;
+        }
+
+        // Stop early, if the time budget is used up. The slice continues on the next run.
+        long budgetNanos = config.getCheckBudgetMicros() * 1000L;
+        if (budgetNanos > 0)
+            budgetNanos = Math.max(1, budgetNanos - (System.nanoTime() - start));
+
+        // Check nearby players. All strains are checked in the same pass.
+        int next = computer.compute(snapshot, 0, strains.getRadii(), strains.getMask(), config.allowInfectionInAir(),
+                                    pairs, traced ? contacts : null, budgetNanos);
+        advanceSources(next);
+
+        // Infect them.
+        applyPairs();
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Get the adaptive check time and its metrics.
+     * @return Instance that adapts the check time.
+     */
+    public AdaptiveInterval getAdaptiveInterval() {
+        return adaptiveInterval;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Slices ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Collects all infected players of a slice.
+     * Players are assigned to a slice by their UUID, so every player stays in the same slice.
+     * @param slice Slice to collect.
+     */
+    private void collectSources(int slice) {
+        PlayerStateTable states = session.getStates();
+        sourceCount = 0;
+        sourceIndex = 0;
+
+        synchronized (states) {
+            for (int slot = states.nextSlot(0); slot != -1; slot = states.nextSlot(slot + 1)) {
+                if (!states.hasFlag(slot, PlayerStateTable.INFECTED))
+                    continue;
+
+                // Check if player belongs to this slice.
+                UUID uuid = states.getId(slot);
+                if (slices > 1 && Math.floorMod(uuid.hashCode(), slices) != slice)
+                    continue;
+
+                // Check if player is online.
+                Player player = states.getHandle(slot);
+                if (player == null || !player.isOnline()) {
+                    states.clearInfection(slot);
+                    continue;
+                }
+
+                // Grow array if needed.
+                if (sourceCount == sources.length)
+                    sources = Arrays.copyOf(sources, sourceCount * 2);
+
+                sources[sourceCount++] = player;
+            }
+
+            // Sizes are only recorded for the global session.
+            if (session.isGlobal())
+                manager.getMetrics().recordSizes(states.size(), states.getInfectedCount(), states.getProtectedCount(),
+                                                 manager.getMovementTracker().size());
+        }
+    }
+
+    /**
+     * Drops the current slice and starts with the first one.
+     */
+    private void resetSlices() {
+        Arrays.fill(sources, 0, sourceCount, null);
+        sourceCount = 0;
+        sourceIndex = 0;
+        runsSinceSlice = Integer.MAX_VALUE - 1;
+        currentSlice = 0;
+
+        // Infections of the dropped cycle are found again by the next one.
+        synchronized (plannedMasks) {
+            clearPlanned();
+        }
+
+        closeRegionCycle();
+    }
+
+    /**
+     * Passes the planned infections to the manager, once the last slice of the cycle is done.
+     * On region threaded servers this happens after the last region task of the cycle.
+     */
+    private void finishSlice() {
+        if (sourceIndex < sourceCount || currentSlice != 0)
+            return;
+
+        if (!scheduler.isRegionized()) {
+            flushPlanned();
+            return;
+        }
+
+        closeRegionCycle();
+    }
+
+    /**
+     * Holds the cycle open until all its slices are dispatched.
+     */
+    private void openRegionCycle() {
+        regionTasks.incrementAndGet();
+        regionCycleOpen = true;
+    }
+
+    /**
+     * Marks the cycle as dispatched, so the last region task passes the planned infections on.
+     */
+    private void closeRegionCycle() {
+        if (!regionCycleOpen)
+            return;
+
+        regionCycleOpen = false;
+        releaseRegionTask();
+    }
+
+    /**
+     * Marks a region task of the cycle as done. The last one passes the planned infections on.
+     */
+    private void releaseRegionTask() {
+        if (regionTasks.decrementAndGet() == 0)
+            scheduler.runSync(this::flushPlanned);
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Expiry ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Cures players whose infection expired and informs players whose protection ran out.
+     * Every strain has its own expiries. Only entries that are actually due are touched.
+     * @param now Current tick.
+     */
+    private void handleExpiries(long now) {
+        int strainCount = session.getStrainCount();
+        for (int strain = 0; strain < strainCount; strain++)
+            handleExpiries(strain, now);
+    }
+
+    private void handleExpiries(int strain, long now) {
+        UUID uuid;
+
+        // Check if infections ended.
+        while ((uuid = session.pollExpiredInfection(strain, now)) != null) {
+            Player player = manager.getOnlinePlayer(uuid);
+
             // Check if player is online.
-            Player player = Bukkit.getPlayer(entry.getKey());
             if (player == null || !player.isOnline()) {
-                manager.getInfectedPlayers().remove(entry.getKey());
+                manager.removeInfection(uuid, strain);
                 continue;
             }
 
-            // Check if player is still infected.
-            if (!manager.isInfected(player)) {
-                manager.cure(player, InfectionCuredEvent.Cause.EXPIRED);
+            // The player may have been cured until the task runs on his thread.
+            scheduler.runFor(player, () -> {
+                long deadline = manager.getInfectionDeadline(player, strain);
+                if (deadline != 0 && deadline <= manager.getClock().getTick())
+                    manager.cure(player, strain, InfectionCuredEvent.Cause.EXPIRED);
+            });
+        }
+
+        // Check if protection status ended.
+        while ((uuid = session.pollExpiredProtection(strain, now)) != null) {
+            // Remove protection.
+            manager.removeProtection(uuid, strain);
+
+            // Check if player is online.
+            Player player = manager.getOnlinePlayer(uuid);
+            if (player == null || !player.isOnline())
                 continue;
+
+            // Call Event when the last protection runs out.
+            scheduler.runFor(player, () -> {
+                if (!manager.isProtected(player))
+                    new ProtectionExpiredEvent(player).callEvent();
+            });
+        }
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Proximity ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Copies the remaining sources of the slice and all players that can catch a strain into the snapshot.
+     * @param now Current tick.
+     * @param strains Strains that are spread.
+     * @param traced True if contacts are recorded. Then every player is copied.
+     */
+    private void captureSnapshot(long now, long strains, boolean traced) {
+        snapshot.reset(now);
+        pairs.clear();
+        contacts.clear();
+
+        // Stamps for incremental checks. Without them every source counts as changed.
+        MovementTracker tracker = manager.getMovementTracker();
+        boolean incremental = manager.getConfig().incrementalChecksEnabled();
+        snapshot.setEpoch(tracker.nextEpoch());
+
+        // Infected players of the slice. The tag is their position in the slice.
+        for (int i = sourceIndex; i < sourceCount; i++) {
+            Player player = sources[i];
+
+            // Player may have left or got cured since the slice started.
+            long carried = player.isOnline() ? manager.getInfectedStrains(player) & strains : 0;
+            if (carried == 0)
+                continue;
+
+            long checkedAt = tracker.getCheckedAt(player.getUniqueId());
+            int flags = PositionSnapshot.INFECTED;
+            if (!incremental || tracker.getChangedAt(player.getUniqueId()) > checkedAt)
+                flags |= PositionSnapshot.CHANGED;
+
+            location = player.getLocation(location);
+            snapshot.addSource(player, location.getWorld().getUID(), location.getX(), location.getY(), location.getZ(),
+                               flags, carried, checkedAt, i);
+        }
+
+        if (snapshot.getSourceCount() == 0)
+            return;
+
+        // Possible targets.
+        snapshot.addTargets(session.getStates(), now, strains, traced, incremental ? tracker : null, location);
+    }
+
+    /**
+     * Marks the sources of the snapshot as checked.
+     * @param next Index of the first source in the snapshot that was not checked.
+     */
+    private void advanceSources(int next) {
+        int index = next < snapshot.getSourceCount() ? snapshot.getSourceTag(next) : sourceCount;
+
+        // Remember the check for incremental checks.
+        MovementTracker tracker = manager.getMovementTracker();
+        for (int i = 0; i < next; i++)
+            tracker.setCheckedAt(snapshot.getPlayer(i).getUniqueId(), snapshot.getEpoch());
+
+        Arrays.fill(sources, sourceIndex, index, null);
+        sourceIndex = index;
+    }
+
+    /**
+     * Computes the infections of the snapshot on the worker thread.
+     * The result is applied on the main thread afterwards.
+     * @param strains Strains that are spread.
+     * @param allowInAir True if players in the air can get infected.
+     * @param traced True if contacts are recorded.
+     */
+    private void computeAsync(StrainRegistry strains, boolean allowInAir, boolean traced) {
+        if (worker == null)
+            worker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Infected Proximity Worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        computing = true;
+        int currentGeneration = generation;
+
+        worker.execute(() -> {
+            try {
+                computer.compute(snapshot, 0, strains.getRadii(), strains.getMask(), allowInAir, pairs,
+                                 traced ? contacts : null, 0);
+            } finally {
+                scheduler.runSync(() -> finishAsync(currentGeneration));
             }
+        });
+    }
 
-            // Check nearby players.
-            // Infect them, if they are not in GameMode Creative.
-            double radius = manager.getConfig().getInfectionRadius();
-            player.getNearbyEntities(radius, radius, radius).stream()
-                    .filter(target -> target instanceof Player)
-                    .filter(target -> !manager.isInfected((Player) target))
-                    .forEach(target -> manager.infect((Player) target, player, InfectionEvent.Cause.INFECTION));
+    /**
+     * Applies the result of the worker.
+     * @param resultGeneration Generation of the checker when the computation started.
+     */
+    private void finishAsync(int resultGeneration) {
+        computing = false;
+
+        // Drop results if the checker was restarted in the meantime.
+        if (resultGeneration != generation) {
+            pairs.clear();
+            contacts.clear();
+            snapshot.reset(0);
+            return;
         }
 
-        // Check if protection status ended.
-        for (UUID uuid : manager.getProtectedPlayers().keySet()) {
-            Player player = Bukkit.getPlayer(uuid);
+        advanceSources(snapshot.getSourceCount());
+        applyPairs();
+    }
 
-            // Check if player is online.
-            if (player == null || !player.isOnline()) {
-                manager.getProtectedPlayers().remove(uuid);
+    /**
+     * Lets the region of every source of the slice check its surroundings.
+     * On region threaded servers only the region that owns a player may read positions around him.
+     */
+    private void dispatchToRegions() {
+        StrainRegistry strains = manager.getStrains(session);
+
+        while (sourceIndex < sourceCount) {
+            Player player = sources[sourceIndex];
+            sources[sourceIndex++] = null;
+
+            regionTasks.incrementAndGet();
+            scheduler.runFor(player, () -> {
+                try {
+                    infectNearbyInRegion(player, strains);
+                } finally {
+                    releaseRegionTask();
+                }
+            }, this::releaseRegionTask);
+        }
+    }
+
+    /**
+     * Plans the infection of all players within the radius of every strain around an infected player.
+     * Runs on the region of the player. The surroundings are only searched once with the largest radius of the strains he carries.
+     * @param origin Infected player.
+     * @param strains Strains that are spread.
+     */
+    private void infectNearbyInRegion(Player origin, StrainRegistry strains) {
+        // Player may have left or got cured since the slice started.
+        long carried = origin.isOnline() ? manager.getInfectedStrains(origin) & strains.getMask() : 0;
+        if (carried == 0)
+            return;
+
+        double radius = 0;
+        for (long bits = carried; bits != 0; bits &= bits - 1)
+            radius = Math.max(radius, strains.getRadii()[Long.numberOfTrailingZeros(bits)]);
+
+        Location center = origin.getLocation();
+        int found = 0;
+        ContactTrace trace = manager.getTrace();
+        long tick = manager.getClock().getTick();
+
+        for (Entity entity : origin.getNearbyEntities(radius, radius, radius)) {
+            if (!(entity instanceof Player))
                 continue;
+
+            Player target = (Player) entity;
+            double distanceSquared = target.getLocation().distanceSquared(center);
+
+            // Record everyone within the radius.
+            if (trace != null && distanceSquared <= radius * radius)
+                trace.record(tick, origin.getUniqueId(), target.getUniqueId());
+
+            for (long bits = carried; bits != 0; bits &= bits - 1) {
+                Strain strain = strains.get(Long.numberOfTrailingZeros(bits));
+                double strainRadius = strain.getInfectionRadius();
+                if (distanceSquared > strainRadius * strainRadius || !manager.canInfect(target, strain))
+                    continue;
+
+                plan(target, origin, strain);
+                found++;
             }
+        }
 
-            // Check if protection ran out.
-            boolean protectedPlayer = manager.isProtected(player);
+        manager.getMetrics().recordPairs(found);
+    }
 
-            if (protectedPlayer)
+    /**
+     * Plans the infection of the targets of all pairs, if origin and target are still valid.
+     * They are infected together once the cycle is complete.
+     */
+    private void applyPairs() {
+        StrainRegistry strains = manager.getStrains(session);
+        manager.getMetrics().recordPairs(pairs.size());
+
+        // Record everyone who was close to an infected player, even if nobody gets infected.
+        ContactTrace trace = manager.getTrace();
+        long tick = manager.getClock().getTick();
+        if (trace != null) {
+            for (int i = 0; i < contacts.size(); i++)
+                trace.record(tick, snapshot.getPlayer(contacts.getOrigin(i)).getUniqueId(),
+                             snapshot.getPlayer(contacts.getTarget(i)).getUniqueId());
+        }
+
+        for (int i = 0; i < pairs.size(); i++) {
+            int targetIndex = pairs.getTarget(i);
+            Player origin = snapshot.getPlayer(pairs.getOrigin(i));
+            Player target = snapshot.getPlayer(targetIndex);
+
+            // Every target is only infected once per strain.
+            long open = pairs.getStrains(i) & ~plannedMasks.getOrDefault(target.getUniqueId(), 0L);
+            if (open == 0)
+                continue;
+
+            if (!origin.isOnline() || !target.isOnline())
                 continue;
 
-            // Call Event when protection runs out.
-            new ProtectionExpiredEvent(player).callEvent();
+            for (long bits = open; bits != 0; bits &= bits - 1) {
+                // Strain may have been removed by a reload.
+                Strain strain = strains.get(Long.numberOfTrailingZeros(bits));
+                if (strain == null || !manager.isInfected(origin, strain) || !manager.canInfect(target, strain))
+                    continue;
+
+                plan(target, origin, strain);
+            }
+        }
+
+        pairs.clear();
+        contacts.clear();
+        snapshot.reset(0);
+        finishSlice();
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Planned infections ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Adds an infection to the cycle, unless the target is already planned for the strain.
+     * @param target Player that gets infected.
+     * @param origin Player that infects him.
+     * @param strain Strain of the infection.
+     */
+    private void plan(Player target, Player origin, Strain strain) {
+        synchronized (plannedMasks) {
+            long planned = plannedMasks.getOrDefault(target.getUniqueId(), 0L);
+            if ((planned & strain.getMask()) != 0)
+                return;
+
+            // Grow arrays if needed.
+            if (plannedCount == plannedTargets.length) {
+                plannedTargets = Arrays.copyOf(plannedTargets, plannedCount * 2);
+                plannedOrigins = Arrays.copyOf(plannedOrigins, plannedCount * 2);
+                plannedStrains = Arrays.copyOf(plannedStrains, plannedCount * 2);
+            }
 
-            // Remove Player from HashMap.
-            manager.getProtectedPlayers().remove(uuid);
+            plannedMasks.put(target.getUniqueId(), planned | strain.getMask());
+            plannedTargets[plannedCount] = target;
+            plannedOrigins[plannedCount] = origin;
+            plannedStrains[plannedCount] = strain;
+            plannedCount++;
         }
     }
 
+    /**
+     * Infects all planned targets of the cycle. The {@link InfectionBatchEvent} is called once for all of them.
+     */
+    private void flushPlanned() {
+        if (!scheduler.isRegionized()) {
+            manager.infectAll(plannedTargets, plannedOrigins, plannedStrains, plannedCount);
+            clearPlanned();
+            return;
+        }
+
+        // Region tasks may already plan the next cycle.
+        Player[] targets;
+        Player[] origins;
+        Strain[] strains;
+        synchronized (plannedMasks) {
+            targets = Arrays.copyOf(plannedTargets, plannedCount);
+            origins = Arrays.copyOf(plannedOrigins, plannedCount);
+            strains = Arrays.copyOf(plannedStrains, plannedCount);
+            clearPlanned();
+        }
+
+        if (targets.length == 0)
+            return;
+
+        // Every target is infected on his own thread.
+        InfectionBatchEvent event = manager.callBatchEvent(targets, origins, strains, targets.length);
+        for (int i = 0; i < targets.length; i++) {
+            if (event != null && event.isCancelled(i))
+                continue;
+
+            Player target = targets[i];
+            Player origin = origins[i];
+            Strain strain = strains[i];
+            scheduler.runFor(target, () -> manager.infect(target, origin, strain, InfectionEvent.Cause.INFECTION));
+        }
+    }
+
+    /**
+     * Releases the player handles of the planned infections.
+     */
+    private void clearPlanned() {
+        Arrays.fill(plannedTargets, 0, plannedCount, null);
+        Arrays.fill(plannedOrigins, 0, plannedCount, null);
+        Arrays.fill(plannedStrains, 0, plannedCount, null);
+        plannedCount = 0;
+        plannedMasks.clear();
+    }
+
 }
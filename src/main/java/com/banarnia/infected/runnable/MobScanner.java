@@ -0,0 +1,174 @@
+package com.banarnia.infected.runnable;
+
+import com.banarnia.infected.InfectionManager;
+import com.banarnia.infected.MobInfections;
+import com.banarnia.infected.config.ConfigSnapshot;
+import com.banarnia.infected.events.InfectionEvent;
+import com.banarnia.infected.tracking.EntityIndex;
+import com.banarnia.infected.tracking.PlayerStateTable;
+import org.bukkit.Location;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Spreads the infection between players and mobs. Runs on the main thread after the player check.
+ * The work per run is bounded: only a configured amount of indexed mobs is refreshed,
+ * only a configured amount of infected mobs spreads the infection and every lookup is limited
+ * to the chunks within the infection radius.
+ */
+public class MobScanner {
+
+    private InfectionManager manager;
+
+    // Infected players and mobs that spread the infection in this run.
+    private Player[] players = new Player[16];
+    private LivingEntity[] mobs = new LivingEntity[16];
+
+    // Reused buffers to avoid allocations.
+    private List<LivingEntity> candidates = new ArrayList<>();
+    private Location location = new Location(null, 0, 0, 0);
+    private Location other = new Location(null, 0, 0, 0);
+
+    /**
+     * Constructor
+     * @param manager Instance of the manager.
+     */
+    public MobScanner(InfectionManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Runs one scan.
+     * @param now Current tick.
+     */
+    public void run(long now) {
+        ConfigSnapshot settings = manager.getConfig().getSnapshot();
+        if (!manager.mobInfectionEnabled())
+            return;
+
+        MobInfections infections = manager.getMobs();
+        EntityIndex index = infections.getIndex();
+
+        // Cure expired mobs and move some mobs to their current chunk.
+        infections.handleExpiries(now);
+        index.refresh(settings.getMobIndexRefresh());
+
+        double radius = settings.getInfectionRadius();
+        int pairs = 0;
+
+        // Infected players infect mobs, healthy players get infected by mobs.
+        int playerCount = collectPlayers();
+        for (int i = 0; i < playerCount; i++) {
+            Player player = players[i];
+            players[i] = null;
+
+            if (!player.isOnline())
+                continue;
+
+            pairs += manager.isInfected(player) ? spreadToMobs(player, radius, index)
+                                                : catchFromMobs(player, radius, index);
+        }
+
+        // A bounded amount of infected mobs infects other mobs.
+        int maxSources = Math.max(0, settings.getMobSourcesPerCheck());
+        if (mobs.length < maxSources)
+            mobs = new LivingEntity[maxSources];
+
+        int mobCount = infections.collectSources(mobs, maxSources);
+        for (int i = 0; i < mobCount; i++) {
+            pairs += spreadToMobs(mobs[i], radius, index);
+            mobs[i] = null;
+        }
+
+        manager.getMetrics().recordPairs(pairs);
+        manager.getMetrics().recordMobSizes(infections.getInfectedCount(), index.size());
+    }
+
+    /**
+     * Copies the handles of all online players, so the state table is not locked while infecting.
+     */
+    private int collectPlayers() {
+        PlayerStateTable states = manager.getStates();
+        int count = 0;
+
+        synchronized (states) {
+            for (int slot = states.nextSlot(0); slot != -1; slot = states.nextSlot(slot + 1)) {
+                Player player = states.getHandle(slot);
+                if (player == null)
+                    continue;
+
+                // Grow array if needed.
+                if (count == players.length)
+                    players = Arrays.copyOf(players, count * 2);
+
+                players[count++] = player;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Infects all susceptible mobs within the radius around an infected player or mob.
+     * @return Amount of evaluated pairs.
+     */
+    private int spreadToMobs(LivingEntity origin, double radius, EntityIndex index) {
+        origin.getLocation(location);
+        UUID world = location.getWorld().getUID();
+
+        candidates.clear();
+        index.collect(world, location.getX(), location.getZ(), radius, candidates);
+
+        int pairs = 0;
+        double radiusSquared = radius * radius;
+        for (LivingEntity target : candidates) {
+            if (target == origin || !manager.getMobs().canInfect(target))
+                continue;
+
+            pairs++;
+            target.getLocation(other);
+            if (other.getWorld() == location.getWorld() && other.distanceSquared(location) <= radiusSquared)
+                manager.getMobs().infect(target, origin);
+        }
+
+        candidates.clear();
+        return pairs;
+    }
+
+    /**
+     * Infects a healthy player, if an infected mob is within the radius.
+     * @return Amount of evaluated pairs.
+     */
+    private int catchFromMobs(Player player, double radius, EntityIndex index) {
+        if (!manager.canInfect(player))
+            return 0;
+
+        player.getLocation(location);
+        UUID world = location.getWorld().getUID();
+
+        candidates.clear();
+        index.collect(world, location.getX(), location.getZ(), radius, candidates);
+
+        int pairs = 0;
+        double radiusSquared = radius * radius;
+        for (LivingEntity origin : candidates) {
+            if (!manager.getMobs().isInfected(origin.getUniqueId()))
+                continue;
+
+            pairs++;
+            origin.getLocation(other);
+            if (other.getWorld() == location.getWorld() && other.distanceSquared(location) <= radiusSquared) {
+                manager.infect(player, origin, InfectionEvent.Cause.INFECTION);
+                break;
+            }
+        }
+
+        candidates.clear();
+        return pairs;
+    }
+}
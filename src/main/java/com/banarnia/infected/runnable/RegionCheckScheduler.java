@@ -0,0 +1,118 @@
+package com.banarnia.infected.runnable;
+
+import org.bukkit.Server;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler for region threaded servers (Folia).
+ * The repeating task runs on the global region, tasks for players run on the region that owns the player.
+ * The API is accessed by reflection, so the plugin still compiles against the Spigot API.
+ */
+public class RegionCheckScheduler implements CheckScheduler {
+
+    // Class that only exists on region threaded servers.
+    private static final String REGIONIZED_SERVER = "io.papermc.paper.threadedregions.RegionizedServer";
+    private static final String SCHEDULER_PACKAGE = "io.papermc.paper.threadedregions.scheduler.";
+
+    private Plugin plugin;
+
+    // Region scheduler API
+    private Object globalScheduler;
+    private Method globalRunAtFixedRate;
+    private Method globalRun;
+    private Method entityGetScheduler;
+    private Method entityRun;
+    private Method taskCancel;
+
+    // Running task
+    private Object task;
+
+    /**
+     * Constructor
+     * @param plugin Plugin that owns the tasks.
+     * @throws ReflectiveOperationException If the region scheduler API could not be found.
+     */
+    public RegionCheckScheduler(Plugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+
+        Class<?> globalClass = Class.forName(SCHEDULER_PACKAGE + "GlobalRegionScheduler");
+        Class<?> entityClass = Class.forName(SCHEDULER_PACKAGE + "EntityScheduler");
+        Class<?> taskClass = Class.forName(SCHEDULER_PACKAGE + "ScheduledTask");
+
+        this.globalScheduler = Server.class.getMethod("getGlobalRegionScheduler").invoke(plugin.getServer());
+        this.globalRunAtFixedRate = globalClass.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+        this.globalRun = globalClass.getMethod("run", Plugin.class, Consumer.class);
+        this.entityGetScheduler = Entity.class.getMethod("getScheduler");
+        this.entityRun = entityClass.getMethod("run", Plugin.class, Consumer.class, Runnable.class);
+        this.taskCancel = taskClass.getMethod("cancel");
+    }
+
+    /**
+     * Check if the server is region threaded.
+     * @return True if the region scheduler API exists.
+     */
+    public static boolean isSupported() {
+        try {
+            Class.forName(REGIONIZED_SERVER);
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public void start(Runnable runnable, long period) {
+        stop();
+
+        // Region schedulers don't accept a delay of 0.
+        Consumer<Object> consumer = scheduledTask -> runnable.run();
+        task = invoke(globalRunAtFixedRate, globalScheduler, plugin, consumer, 1L, Math.max(1L, period));
+    }
+
+    @Override
+    public void stop() {
+        if (task == null)
+            return;
+
+        invoke(taskCancel, task);
+        task = null;
+    }
+
+    @Override
+    public void runSync(Runnable runnable) {
+        if (!plugin.isEnabled())
+            return;
+
+        Consumer<Object> consumer = scheduledTask -> runnable.run();
+        invoke(globalRun, globalScheduler, plugin, consumer);
+    }
+
+    @Override
+    public void runFor(Player player, Runnable runnable, Runnable retired) {
+        Consumer<Object> consumer = scheduledTask -> runnable.run();
+        Object entityScheduler = invoke(entityGetScheduler, player);
+
+        // The task is dropped, if the player is removed before it runs. The retired task runs instead.
+        // A player that is already removed doesn't accept the task at all.
+        if (invoke(entityRun, entityScheduler, plugin, consumer, retired) == null && retired != null)
+            retired.run();
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    private static Object invoke(Method method, Object instance, Object... args) {
+        try {
+            return method.invoke(instance, args);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Could not call region scheduler: " + method.getName(), ex);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.banarnia.infected.runnable;
+
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Clock of the plugin that is advanced once per server tick.
+ * Deadlines are stored as tick numbers, so they are compared against one cached value and don't drift against the
+ * server when it lags. The wall clock is sampled once per tick and only used to display deadlines.
+ */
+public class TickClock implements Runnable {
+
+    // Duration of a tick at 20 TPS.
+    public static final long MILLIS_PER_TICK = 50;
+    public static final long TICKS_PER_SECOND = 20;
+
+    // Scheduler that advances the clock.
+    private CheckScheduler scheduler;
+
+    // Current tick and the wall clock at the start of it. Only written by the ticking thread.
+    private volatile long tick;
+    private volatile long millis = System.currentTimeMillis();
+
+    /**
+     * Starts advancing the clock.
+     * @param plugin Plugin that owns the task.
+     */
+    public void start(Plugin plugin) {
+        if (scheduler == null)
+            scheduler = CheckScheduler.create(plugin);
+
+        millis = System.currentTimeMillis();
+        scheduler.start(this, 1);
+    }
+
+    /**
+     * Stops advancing the clock.
+     */
+    public void stop() {
+        if (scheduler != null)
+            scheduler.stop();
+    }
+
+    @Override
+    public void run() {
+        tick++;
+        millis = System.currentTimeMillis();
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Conversion ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Get the tick that lies a number of seconds in the future.
+     * @param seconds Seconds from now.
+     * @return Tick number.
+     */
+    public long inSeconds(long seconds) {
+        return tick + seconds * TICKS_PER_SECOND;
+    }
+
+    /**
+     * Converts a tick to a wall clock timestamp for display.
+     * @param tick Tick number.
+     * @return Estimated timestamp, assuming that the server runs at 20 TPS.
+     */
+    public long toMillis(long tick) {
+        return millis + (tick - this.tick) * MILLIS_PER_TICK;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+}
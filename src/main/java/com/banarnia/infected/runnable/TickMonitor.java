@@ -0,0 +1,122 @@
+package com.banarnia.infected.runnable;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Method;
+
+/**
+ * Measures how long the recent server ticks took.
+ * Servers that provide the average tick time (Paper) are asked directly. On other servers the time between two ticks
+ * is measured, which can't get below 50 ms and only shows if the server falls behind.
+ */
+public class TickMonitor implements Runnable {
+
+    // Duration of a tick at 20 TPS.
+    private static final double TICK_MILLIS = 50.0;
+
+    // Weight of a new measurement in the moving average.
+    private static final double SMOOTHING = 0.05;
+
+    // Average tick time of the server, if available.
+    private Method averageTickTime;
+
+    // Task ID
+    private int taskID = -1;
+
+    // Measured time between ticks.
+    private long lastTick;
+    private double averageGapMillis = TICK_MILLIS;
+
+    /**
+     * Constructor
+     */
+    public TickMonitor() {
+        try {
+            this.averageTickTime = Server.class.getMethod("getAverageTickTime");
+        } catch (NoSuchMethodException ex) {
+            this.averageTickTime = null;
+        }
+    }
+
+    /**
+     * Starts measuring, if the server does not provide the tick time itself.
+     * @param plugin Plugin that owns the task.
+     */
+    public void start(Plugin plugin) {
+        if (isPrecise() || taskID != -1)
+            return;
+
+        lastTick = 0;
+        taskID = Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this, 1, 1);
+    }
+
+    /**
+     * Stops measuring.
+     */
+    public void stop() {
+        if (taskID == -1)
+            return;
+
+        Bukkit.getScheduler().cancelTask(taskID);
+        taskID = -1;
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+
+        if (lastTick != 0) {
+            double gapMillis = (now - lastTick) / 1_000_000.0;
+            averageGapMillis += (gapMillis - averageGapMillis) * SMOOTHING;
+        }
+
+        lastTick = now;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Evaluation ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Get the milliseconds per tick of the recent ticks.
+     * @return Average tick time or time between ticks, if the server does not provide it.
+     */
+    public double getMspt() {
+        if (!isPrecise())
+            return averageGapMillis;
+
+        try {
+            return ((Number) averageTickTime.invoke(Bukkit.getServer())).doubleValue();
+        } catch (ReflectiveOperationException ex) {
+            averageTickTime = null;
+            return averageGapMillis;
+        }
+    }
+
+    /**
+     * Check if the server takes longer than the target.
+     * @param targetMspt Target milliseconds per tick.
+     * @return True if the server is overloaded.
+     */
+    public boolean isOverloaded(double targetMspt) {
+        // Measured gaps can't show a tick time below 50 ms.
+        return isPrecise() ? getMspt() > targetMspt : getMspt() > Math.max(targetMspt, TICK_MILLIS) + 1.0;
+    }
+
+    /**
+     * Check if the server is clearly faster than the target.
+     * @param targetMspt Target milliseconds per tick.
+     * @return True if there is headroom.
+     */
+    public boolean hasHeadroom(double targetMspt) {
+        return isPrecise() ? getMspt() < targetMspt * 0.8 : getMspt() < TICK_MILLIS + 1.0;
+    }
+
+    /**
+     * Check if the server provides the real tick time.
+     * @return True if the average tick time is provided by the server.
+     */
+    public boolean isPrecise() {
+        return averageTickTime != null;
+    }
+}
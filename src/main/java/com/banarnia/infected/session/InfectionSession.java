@@ -0,0 +1,205 @@
+package com.banarnia.infected.session;
+
+import com.banarnia.infected.runnable.InfectionChecker;
+import com.banarnia.infected.tracking.ExpiryQueue;
+import com.banarnia.infected.tracking.PlayerStateTable;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One isolated round of the game. Every session is played in its own world and has its own state table,
+ * expiries and checker, so a check only touches the players of its session.
+ * Players outside of all session worlds belong to the global session, which has no world.
+ * All access to the state and the expiries is synchronized on the state table.
+ */
+public class InfectionSession {
+
+    // Name of the global session.
+    public static final String GLOBAL_NAME = "global";
+
+    // Name of the session and the world it is played in. Null for the global session.
+    private final String name;
+    private final UUID world;
+
+    // State of the participants.
+    private final PlayerStateTable states;
+
+    // Expiries of every strain ordered by deadline. Outdated entries are skipped when polled.
+    private ExpiryQueue[] infectionExpiries = {new ExpiryQueue()};
+    private ExpiryQueue[] protectionExpiries = {new ExpiryQueue()};
+
+    // Checker that scans the participants.
+    private InfectionChecker checker;
+
+    // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Constructor
+     * @param name Name of the session.
+     * @param world UUID of the world or null for the global session.
+     */
+    public InfectionSession(String name, UUID world) {
+        this.name = name;
+        this.world = world;
+        this.states = new PlayerStateTable();
+    }
+
+    /**
+     * Drops all expiries. Called once the session ended.
+     */
+    public void close() {
+        synchronized (states) {
+            infectionExpiries = new ExpiryQueue[] {new ExpiryQueue()};
+            protectionExpiries = new ExpiryQueue[] {new ExpiryQueue()};
+        }
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Participants ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Get the handles of all participants that are online.
+     * @return New list of players.
+     */
+    public List<Player> getParticipants() {
+        List<Player> players = new ArrayList<>();
+        synchronized (states) {
+            for (int slot = states.nextSlot(0); slot != -1; slot = states.nextSlot(slot + 1)) {
+                Player player = states.getHandle(slot);
+                if (player != null)
+                    players.add(player);
+            }
+        }
+
+        return players;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Expiry ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Amount of strain indices that have expiry queues. Strains that were removed from the config still have one,
+     * until everything of them expired.
+     */
+    public int getStrainCount() {
+        synchronized (states) {
+            return Math.max(infectionExpiries.length, protectionExpiries.length);
+        }
+    }
+
+    /**
+     * Polls the next infection with a strain that is due.
+     * The player stays infected until he is cured.
+     * @param strain Index of the strain.
+     * @param now Current tick.
+     * @return UUID of a player whose infection expired or null if nothing is due.
+     */
+    public UUID pollExpiredInfection(int strain, long now) {
+        return poll(strain, true, now);
+    }
+
+    /**
+     * Polls the next protection from a strain that is due.
+     * The player stays protected until his protection is removed.
+     * @param strain Index of the strain.
+     * @param now Current tick.
+     * @return UUID of a player whose protection expired or null if nothing is due.
+     */
+    public UUID pollExpiredProtection(int strain, long now) {
+        return poll(strain, false, now);
+    }
+
+    /**
+     * Polls due entries until one matches the current state.
+     * Entries are outdated if the player was removed or got a new deadline in the meantime.
+     */
+    private UUID poll(int strain, boolean infection, long now) {
+        synchronized (states) {
+            ExpiryQueue queue = infection ? infectionQueue(strain) : protectionQueue(strain);
+            while (queue.hasDue(now)) {
+                UUID uuid = queue.peekId();
+                long deadline = queue.peekDeadline();
+                queue.poll();
+
+                int slot = states.find(uuid);
+                if (slot == -1)
+                    continue;
+
+                long current = infection ? states.getInfectionDeadline(slot, strain)
+                                         : states.getProtectionDeadline(slot, strain);
+                if (current != 0 && current == deadline)
+                    return uuid;
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Get the infection expiries of a strain. Call while holding the lock on the state table.
+     * @param strain Index of the strain.
+     * @return Queue of the strain.
+     */
+    public ExpiryQueue infectionQueue(int strain) {
+        if (strain >= infectionExpiries.length)
+            infectionExpiries = grow(infectionExpiries, strain + 1);
+
+        return infectionExpiries[strain];
+    }
+
+    /**
+     * Get the protection expiries of a strain. Call while holding the lock on the state table.
+     * @param strain Index of the strain.
+     * @return Queue of the strain.
+     */
+    public ExpiryQueue protectionQueue(int strain) {
+        if (strain >= protectionExpiries.length)
+            protectionExpiries = grow(protectionExpiries, strain + 1);
+
+        return protectionExpiries[strain];
+    }
+
+    private static ExpiryQueue[] grow(ExpiryQueue[] queues, int length) {
+        ExpiryQueue[] grown = Arrays.copyOf(queues, length);
+        for (int i = queues.length; i < length; i++)
+            grown[i] = new ExpiryQueue();
+
+        return grown;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the world of the session.
+     * @return UUID of the world or null for the global session.
+     */
+    public UUID getWorld() {
+        return world;
+    }
+
+    public boolean isGlobal() {
+        return world == null;
+    }
+
+    /**
+     * Get the state table. Synchronize on it while using it.
+     * @return State table of the participants.
+     */
+    public PlayerStateTable getStates() {
+        return states;
+    }
+
+    public InfectionChecker getChecker() {
+        return checker;
+    }
+
+    public void setChecker(InfectionChecker checker) {
+        this.checker = checker;
+    }
+}
@@ -0,0 +1,250 @@
+package com.banarnia.infected.tracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Fixed-size ring buffer of contacts between players. Every record is a tick and the indices of both players.
+ * Once the buffer is full, the oldest record is overwritten. Players only keep their index while they are part of
+ * a record, so the memory use stays the same however long the server runs.
+ * The same pair is recorded at most once within the dedup window.
+ * Records are appended in the order of their ticks, so the records of a time span are found by a binary search.
+ * All methods are synchronized, because region threads may record contacts concurrently.
+ */
+public class ContactTrace {
+
+    // Records by position. The ticks never decrease from the oldest to the newest record.
+    private final long[] ticks;
+    private final int[] firstPlayers;
+    private final int[] secondPlayers;
+
+    // Position of the next record, amount of records and amount of records that were ever written.
+    private int head;
+    private int size;
+    private long written;
+
+    // Index of every player that is part of a record and the amount of records with him.
+    // Indices of players without records are reused.
+    private final Map<UUID, Integer> indices = new HashMap<>();
+    private UUID[] ids = new UUID[64];
+    private int[] references = new int[64];
+    private int[] freeIndices = new int[64];
+    private int freeCount;
+    private int indexCount;
+
+    // Last record of every pair by hash. A collision only lets a duplicate through.
+    private final long[] recentPairs;
+    private final long[] recentRecords;
+    private final int recentMask;
+
+    // Ticks in which the same pair is only recorded once.
+    private final long window;
+
+    // Tick of the newest record.
+    private long lastTick;
+
+    // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Constructor
+     * @param capacity Maximum amount of records.
+     * @param window Ticks in which the same pair is only recorded once.
+     */
+    public ContactTrace(int capacity, long window) {
+        capacity = Math.max(1, capacity);
+        this.ticks = new long[capacity];
+        this.firstPlayers = new int[capacity];
+        this.secondPlayers = new int[capacity];
+        this.window = window;
+
+        int recentCapacity = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.recentPairs = new long[recentCapacity];
+        this.recentRecords = new long[recentCapacity];
+        this.recentMask = recentCapacity - 1;
+        Arrays.fill(recentRecords, -1);
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Recording ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Records that two players were close to each other.
+     * @param tick Current tick.
+     * @param first UUID of one player.
+     * @param second UUID of the other player.
+     * @return True if it was recorded, false if the pair was already recorded within the window.
+     */
+    public synchronized boolean record(long tick, UUID first, UUID second) {
+        if (first.equals(second))
+            return false;
+
+        // Keep the order of the ticks, even if a region thread is late.
+        tick = Math.max(tick, lastTick);
+
+        // Drop duplicates. An index can't be reused while its record is in the buffer, so equal indices mean equal players.
+        Integer firstIndex = indices.get(first);
+        Integer secondIndex = indices.get(second);
+        int recent = -1;
+        if (firstIndex != null && secondIndex != null) {
+            long pair = pairKey(firstIndex, secondIndex);
+            recent = mix(pair) & recentMask;
+
+            long record = recentRecords[recent];
+            if (recentPairs[recent] == pair && record >= written - size && tick - ticks[position(record)] < window)
+                return false;
+        }
+
+        // Overwrite the oldest record, if the buffer is full.
+        if (size == ticks.length) {
+            release(firstPlayers[head]);
+            release(secondPlayers[head]);
+        } else {
+            size++;
+        }
+
+        int a = acquire(first);
+        int b = acquire(second);
+        ticks[head] = tick;
+        firstPlayers[head] = a;
+        secondPlayers[head] = b;
+
+        long pair = pairKey(a, b);
+        if (recent == -1 || recentPairs[recent] != pair)
+            recent = mix(pair) & recentMask;
+        recentPairs[recent] = pair;
+        recentRecords[recent] = written;
+
+        head = (head + 1) % ticks.length;
+        written++;
+        lastTick = tick;
+        return true;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Queries ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Finds everyone a player was close to since a tick. Only the records of the time span are visited.
+     * @param player UUID of the player.
+     * @param since First tick of the time span.
+     * @return UUID of every contact and the tick when they were close the last time, the newest first.
+     */
+    public synchronized Map<UUID, Long> getContacts(UUID player, long since) {
+        Map<UUID, Long> contacts = new LinkedHashMap<>();
+        Integer index = indices.get(player);
+        if (index == null)
+            return contacts;
+
+        int first = firstSince(since);
+        for (int i = size - 1; i >= first; i--) {
+            int position = (head - size + i + ticks.length) % ticks.length;
+
+            int other;
+            if (firstPlayers[position] == index)
+                other = secondPlayers[position];
+            else if (secondPlayers[position] == index)
+                other = firstPlayers[position];
+            else
+                continue;
+
+            contacts.putIfAbsent(ids[other], ticks[position]);
+        }
+
+        return contacts;
+    }
+
+    /**
+     * Get every player that is part of a record.
+     * @return UUIDs of the players.
+     */
+    public synchronized List<UUID> getPlayers() {
+        return new ArrayList<>(indices.keySet());
+    }
+
+    /**
+     * Binary search for the oldest record that is not older than a tick.
+     * @return Age order of the record, 0 is the oldest record. Equal to the size if all records are older.
+     */
+    private int firstSince(long since) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ticks[(head - size + middle + ticks.length) % ticks.length] < since)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Player indices ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Get the index of a player for a new record.
+     */
+    private int acquire(UUID uuid) {
+        Integer index = indices.get(uuid);
+        if (index == null) {
+            index = freeCount > 0 ? freeIndices[--freeCount] : indexCount++;
+
+            // Grow arrays if needed.
+            if (index == ids.length) {
+                ids = Arrays.copyOf(ids, index * 2);
+                references = Arrays.copyOf(references, index * 2);
+                freeIndices = Arrays.copyOf(freeIndices, index * 2);
+            }
+
+            ids[index] = uuid;
+            indices.put(uuid, index);
+        }
+
+        references[index]++;
+        return index;
+    }
+
+    /**
+     * Releases the index of a player of a record that is overwritten.
+     */
+    private void release(int index) {
+        if (--references[index] > 0)
+            return;
+
+        indices.remove(ids[index]);
+        ids[index] = null;
+        freeIndices[freeCount++] = index;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Internal ~~~~~~~~~~~~~~~~~~~~
+
+    private int position(long record) {
+        return (int) (record % ticks.length);
+    }
+
+    private static long pairKey(int first, int second) {
+        return first < second ? ((long) first << 32) | second : ((long) second << 32) | first;
+    }
+
+    private static int mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return ticks.length;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+}
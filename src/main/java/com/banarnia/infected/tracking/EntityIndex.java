@@ -0,0 +1,237 @@
+package com.banarnia.infected.tracking;
+
+import org.bukkit.Location;
+import org.bukkit.entity.LivingEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Index of living entities by world and chunk, so entities around a position are found
+ * without asking the world for nearby entities.
+ * Entities are added and removed by events. Their chunk is refreshed round-robin by {@link #refresh(int)},
+ * so the cost per call is bounded no matter how many entities are indexed.
+ * The index is not thread-safe and must only be used on the main thread.
+ */
+public class EntityIndex {
+
+    // Buckets of every world, keyed by chunk.
+    private final Map<UUID, Map<Long, Bucket>> worlds = new HashMap<>();
+
+    // Entries by UUID of the entity and in the order of the refresh.
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final List<Entry> order = new ArrayList<>();
+    private int cursor;
+
+    // Reused location to avoid allocations.
+    private final Location location = new Location(null, 0, 0, 0);
+
+    // ~~~~~~~~~~~~~~~~~~~~ Updates ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Adds an entity or moves it to its current chunk, if it is indexed already.
+     * @param entity Entity to index.
+     */
+    public void add(LivingEntity entity) {
+        entity.getLocation(location);
+        UUID world = location.getWorld().getUID();
+        long key = chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+
+        Entry entry = entries.get(entity.getUniqueId());
+        if (entry != null) {
+            // The handle may have changed, e.g. after the chunk was loaded again.
+            detach(entry);
+            entry.entity = entity;
+            move(entry, world, key);
+            return;
+        }
+
+        entry = new Entry(entity);
+        entry.position = order.size();
+        entries.put(entity.getUniqueId(), entry);
+        order.add(entry);
+        move(entry, world, key);
+    }
+
+    /**
+     * Removes an entity.
+     * @param uuid UUID of the entity.
+     * @return True if the entity was indexed.
+     */
+    public boolean remove(UUID uuid) {
+        Entry entry = entries.remove(uuid);
+        if (entry == null)
+            return false;
+
+        detach(entry);
+
+        // Fill the gap with the last entry.
+        Entry last = order.remove(order.size() - 1);
+        if (last != entry) {
+            order.set(entry.position, last);
+            last.position = entry.position;
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves entities to their current chunk and drops entities that are not valid anymore.
+     * Continues where the last call stopped.
+     * @param budget Maximum amount of entities to refresh.
+     * @return Amount of entities that were refreshed.
+     */
+    public int refresh(int budget) {
+        int refreshed = 0;
+
+        while (refreshed < budget && !order.isEmpty()) {
+            if (cursor >= order.size())
+                cursor = 0;
+
+            Entry entry = order.get(cursor);
+            refreshed++;
+
+            // Removing moves the last entry to the cursor, so the cursor stays.
+            if (!entry.entity.isValid()) {
+                remove(entry.entity.getUniqueId());
+                continue;
+            }
+
+            entry.entity.getLocation(location);
+            move(entry, location.getWorld().getUID(), chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+            cursor++;
+        }
+
+        return refreshed;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        worlds.clear();
+        entries.clear();
+        order.clear();
+        cursor = 0;
+    }
+
+    private void move(Entry entry, UUID world, long key) {
+        if (entry.bucket != null && entry.bucket.key == key && entry.bucket.world.equals(world))
+            return;
+
+        detach(entry);
+
+        Map<Long, Bucket> buckets = worlds.computeIfAbsent(world, uuid -> new HashMap<>());
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new Bucket(world, key);
+            buckets.put(key, bucket);
+        }
+
+        bucket.entities.add(entry.entity);
+        entry.bucket = bucket;
+    }
+
+    private void detach(Entry entry) {
+        Bucket bucket = entry.bucket;
+        if (bucket == null)
+            return;
+
+        bucket.entities.remove(entry.entity);
+        entry.bucket = null;
+
+        // Drop empty buckets.
+        if (bucket.entities.isEmpty()) {
+            Map<Long, Bucket> buckets = worlds.get(bucket.world);
+            buckets.remove(bucket.key);
+            if (buckets.isEmpty())
+                worlds.remove(bucket.world);
+        }
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Queries ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Collects all indexed entities in the chunks that overlap a square around a position.
+     * Entities are not filtered by distance.
+     * @param world UUID of the world.
+     * @param x X coordinate of the center.
+     * @param z Z coordinate of the center.
+     * @param radius Half of the edge length of the square.
+     * @param out List that receives the entities.
+     */
+    public void collect(UUID world, double x, double z, double radius, List<LivingEntity> out) {
+        Map<Long, Bucket> buckets = worlds.get(world);
+        if (buckets == null)
+            return;
+
+        int minX = (int) Math.floor(x - radius) >> 4;
+        int maxX = (int) Math.floor(x + radius) >> 4;
+        int minZ = (int) Math.floor(z - radius) >> 4;
+        int maxZ = (int) Math.floor(z + radius) >> 4;
+
+        for (int chunkX = minX; chunkX <= maxX; chunkX++) {
+            for (int chunkZ = minZ; chunkZ <= maxZ; chunkZ++) {
+                Bucket bucket = buckets.get(chunkKey(chunkX, chunkZ));
+                if (bucket != null)
+                    out.addAll(bucket.entities);
+            }
+        }
+    }
+
+    /**
+     * Get the handle of an indexed entity.
+     * @param uuid UUID of the entity.
+     * @return Entity or null if it is not indexed.
+     */
+    public LivingEntity get(UUID uuid) {
+        Entry entry = entries.get(uuid);
+        return entry != null ? entry.entity : null;
+    }
+
+    public boolean contains(UUID uuid) {
+        return entries.containsKey(uuid);
+    }
+
+    public int size() {
+        return order.size();
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Entries ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Entities of one chunk.
+     */
+    private static class Bucket {
+
+        private final UUID world;
+        private final long key;
+        private final List<LivingEntity> entities = new ArrayList<>(4);
+
+        private Bucket(UUID world, long key) {
+            this.world = world;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Indexed entity with its bucket and its position in the refresh order.
+     */
+    private static class Entry {
+
+        private LivingEntity entity;
+        private Bucket bucket;
+        private int position;
+
+        private Entry(LivingEntity entity) {
+            this.entity = entity;
+        }
+    }
+}
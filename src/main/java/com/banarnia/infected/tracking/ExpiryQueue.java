@@ -0,0 +1,124 @@
+package com.banarnia.infected.tracking;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Deadline-ordered queue (binary min-heap) of scheduled expiries.
+ * Entries are never removed when a deadline changes. Instead the owner validates a polled entry
+ * against the current state and skips it, if it is outdated.
+ */
+public class ExpiryQueue {
+
+    private int size;
+    private long[] deadlines = new long[16];
+    private UUID[] ids = new UUID[16];
+
+    // ~~~~~~~~~~~~~~~~~~~~ Scheduling ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Schedule an expiry.
+     * @param id UUID of the player.
+     * @param deadline Time when the entry is due.
+     */
+    public void schedule(UUID id, long deadline) {
+        // Grow arrays if needed.
+        if (size == deadlines.length) {
+            deadlines = Arrays.copyOf(deadlines, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+
+        // Append and move the entry up.
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (deadlines[parent] <= deadline)
+                break;
+
+            deadlines[index] = deadlines[parent];
+            ids[index] = ids[parent];
+            index = parent;
+        }
+
+        deadlines[index] = deadline;
+        ids[index] = id;
+    }
+
+    /**
+     * Check if the first entry is due.
+     * @param now Current time.
+     * @return True if there is an entry with a deadline that is not in the future.
+     */
+    public boolean hasDue(long now) {
+        return size > 0 && deadlines[0] <= now;
+    }
+
+    /**
+     * Get the deadline of the first entry. Only valid if the queue is not empty.
+     * @return Deadline of the first entry.
+     */
+    public long peekDeadline() {
+        return deadlines[0];
+    }
+
+    /**
+     * Get the UUID of the first entry. Only valid if the queue is not empty.
+     * @return UUID of the first entry.
+     */
+    public UUID peekId() {
+        return ids[0];
+    }
+
+    /**
+     * Removes the first entry.
+     */
+    public void poll() {
+        if (size == 0)
+            return;
+
+        int last = --size;
+        long deadline = deadlines[last];
+        UUID id = ids[last];
+        ids[last] = null;
+
+        if (last == 0)
+            return;
+
+        // Move the last entry down from the top.
+        int index = 0;
+        int half = last >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < last && deadlines[child + 1] < deadlines[child])
+                child++;
+
+            if (deadline <= deadlines[child])
+                break;
+
+            deadlines[index] = deadlines[child];
+            ids[index] = ids[child];
+            index = child;
+        }
+
+        deadlines[index] = deadline;
+        ids[index] = id;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(ids, 0, size, null);
+        size = 0;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
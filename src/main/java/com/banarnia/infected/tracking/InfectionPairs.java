@@ -0,0 +1,78 @@
+package com.banarnia.infected.tracking;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of planned infections.
+ * Origins and targets are indices into a {@link PositionSnapshot}. Every pair has the strains that can be passed on.
+ */
+public class InfectionPairs {
+
+    private int size;
+    private int[] origins = new int[16];
+    private int[] targets = new int[16];
+    private double[] distancesSquared = new double[16];
+    private long[] strains = new long[16];
+
+    /**
+     * Removes all pairs.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a pair of the default strain.
+     * @param origin Index of the infected player.
+     * @param target Index of the player that gets infected.
+     * @param distanceSquared Squared distance between both players.
+     */
+    public void add(int origin, int target, double distanceSquared) {
+        add(origin, target, distanceSquared, 1L);
+    }
+
+    /**
+     * Adds a pair.
+     * @param origin Index of the infected player.
+     * @param target Index of the player that gets infected.
+     * @param distanceSquared Squared distance between both players.
+     * @param strains Strains the origin passes on to the target.
+     */
+    public void add(int origin, int target, double distanceSquared, long strains) {
+        // Grow arrays if needed.
+        if (size == origins.length) {
+            origins = Arrays.copyOf(origins, size * 2);
+            targets = Arrays.copyOf(targets, size * 2);
+            distancesSquared = Arrays.copyOf(distancesSquared, size * 2);
+            this.strains = Arrays.copyOf(this.strains, size * 2);
+        }
+
+        origins[size] = origin;
+        targets[size] = target;
+        distancesSquared[size] = distanceSquared;
+        this.strains[size] = strains;
+        size++;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public int size() {
+        return size;
+    }
+
+    public int getOrigin(int index) {
+        return origins[index];
+    }
+
+    public int getTarget(int index) {
+        return targets[index];
+    }
+
+    public double getDistanceSquared(int index) {
+        return distancesSquared[index];
+    }
+
+    public long getStrains(int index) {
+        return strains[index];
+    }
+}
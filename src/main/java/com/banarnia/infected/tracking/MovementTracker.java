@@ -0,0 +1,173 @@
+package com.banarnia.infected.tracking;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers when players moved noticeably or changed their state.
+ * Changes are stamped with an epoch that is increased whenever the checker takes a snapshot.
+ * A pair of players only has to be checked again, if one of them changed after the source was checked the last time.
+ */
+public class MovementTracker {
+
+    // Stamp of players that were never checked.
+    public static final long NEVER = -1;
+
+    // Position and stamps of every online player.
+    private Map<UUID, Anchor> anchors = new ConcurrentHashMap<>();
+
+    // Current epoch. Changes are stamped with it.
+    private volatile long epoch;
+
+    // Squared distance a player has to move until he is marked as changed.
+    private double thresholdSquared = 1.0;
+
+    // ~~~~~~~~~~~~~~~~~~~~ Tracking ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Handles a movement of a player.
+     * The player is only marked, if he moved further than the threshold, changed the chunk or the world,
+     * or left or touched the ground.
+     * @param player Player that moved.
+     * @param to New location.
+     */
+    public void handleMove(Player player, Location to) {
+        Anchor anchor = anchors.get(player.getUniqueId());
+        if (anchor == null) {
+            markChanged(player, to);
+            return;
+        }
+
+        double distanceX = to.getX() - anchor.x;
+        double distanceY = to.getY() - anchor.y;
+        double distanceZ = to.getZ() - anchor.z;
+        boolean moved = distanceX * distanceX + distanceY * distanceY + distanceZ * distanceZ >= thresholdSquared
+                || (to.getBlockX() >> 4) != anchor.chunkX
+                || (to.getBlockZ() >> 4) != anchor.chunkZ
+                || !to.getWorld().getUID().equals(anchor.world)
+                || player.isOnGround() != anchor.onGround;
+
+        if (moved)
+            anchor.set(to, player.isOnGround(), epoch);
+    }
+
+    /**
+     * Marks a player as changed at his current location, e.g. if his infection state changed.
+     * @param player Player that changed.
+     */
+    public void markChanged(Player player) {
+        markChanged(player, player.getLocation());
+    }
+
+    /**
+     * Marks a player as changed without updating his position.
+     * @param uuid UUID of the player.
+     */
+    public void markChanged(UUID uuid) {
+        Anchor anchor = anchors.get(uuid);
+        if (anchor != null)
+            anchor.changedAt = epoch;
+    }
+
+    private void markChanged(Player player, Location location) {
+        anchors.computeIfAbsent(player.getUniqueId(), uuid -> new Anchor())
+               .set(location, player.isOnGround(), epoch);
+    }
+
+    /**
+     * Stops tracking a player.
+     * @param uuid UUID of the player.
+     */
+    public void remove(UUID uuid) {
+        anchors.remove(uuid);
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Stamps ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Starts a new epoch. Called when a snapshot is taken.
+     * @return Epoch of the snapshot. Changes after this call get a higher stamp.
+     */
+    public long nextEpoch() {
+        return epoch++;
+    }
+
+    /**
+     * Get the epoch of the last change of a player.
+     * @param uuid UUID of the player.
+     * @return Stamp of the last change. Players that are not tracked count as changed right now.
+     */
+    public long getChangedAt(UUID uuid) {
+        Anchor anchor = anchors.get(uuid);
+        return anchor != null ? anchor.changedAt : epoch;
+    }
+
+    /**
+     * Get the epoch of the snapshot in which the surroundings of a player were checked the last time.
+     * @param uuid UUID of the player.
+     * @return Stamp of the last check or {@link #NEVER}.
+     */
+    public long getCheckedAt(UUID uuid) {
+        Anchor anchor = anchors.get(uuid);
+        return anchor != null ? anchor.checkedAt : NEVER;
+    }
+
+    /**
+     * Stores that the surroundings of a player were checked.
+     * @param uuid UUID of the player.
+     * @param stamp Epoch of the snapshot.
+     */
+    public void setCheckedAt(UUID uuid, long stamp) {
+        Anchor anchor = anchors.get(uuid);
+        if (anchor != null)
+            anchor.checkedAt = stamp;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public int size() {
+        return anchors.size();
+    }
+
+    /**
+     * Set the distance a player has to move until he is marked as changed.
+     * @param threshold Distance in blocks.
+     */
+    public void setThreshold(double threshold) {
+        this.thresholdSquared = threshold * threshold;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Anchor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Last noticeable position of a player.
+     */
+    private static class Anchor {
+
+        private double x;
+        private double y;
+        private double z;
+        private int chunkX;
+        private int chunkZ;
+        private UUID world;
+        private boolean onGround;
+
+        private volatile long changedAt;
+        private volatile long checkedAt = NEVER;
+
+        private void set(Location location, boolean onGround, long stamp) {
+            this.x = location.getX();
+            this.y = location.getY();
+            this.z = location.getZ();
+            this.chunkX = location.getBlockX() >> 4;
+            this.chunkZ = location.getBlockZ() >> 4;
+            this.world = location.getWorld().getUID();
+            this.onGround = onGround;
+            this.changedAt = stamp;
+        }
+    }
+}
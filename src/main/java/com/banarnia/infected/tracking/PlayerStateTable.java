@@ -0,0 +1,604 @@
+package com.banarnia.infected.tracking;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Open addressing table that holds the infection and protection state of players next to their online handle.
+ * Keys are the two longs of the UUID and all values are stored in primitive arrays, so lookups and updates don't allocate.
+ * Every slot has a bitset of the strains it is infected with and one of the strains it is protected from.
+ * Deadlines are stored in one column per strain. The {@link #INFECTED} and {@link #PROTECTED} flags are set while any
+ * strain is set. Methods without a strain use the default strain 0 or all strains, as documented.
+ * Removed entries are only marked, they are never moved. Because of that, entries can be removed while iterating with
+ * {@link #nextSlot(int)}. Adding entries may rebuild the table and invalidates slot numbers.
+ * The table itself is not thread-safe. Callers that share it between threads synchronize on the table.
+ */
+public class PlayerStateTable {
+
+    // Status bits of a slot.
+    public static final int OCCUPIED = 1;
+    public static final int REMOVED = 1 << 1;
+    public static final int INFECTED = 1 << 2;
+    public static final int PROTECTED = 1 << 3;
+    public static final int ONLINE = 1 << 4;
+
+    // Maximum fill rate (including removed slots) before the table is rebuilt.
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // Keys.
+    private long[] mostBits;
+    private long[] leastBits;
+    private UUID[] ids;
+
+    // Handles of online players.
+    private Player[] handles;
+
+    // Values. Deadlines are indexed by strain and slot.
+    private long[][] infectionDeadlines = new long[1][];
+    private long[][] protectionDeadlines = new long[1][];
+    private long[] infectedStrains;
+    private long[] protectedStrains;
+    private int[] status;
+
+    // Counters.
+    private int mask;
+    private int size;
+    private int removed;
+    private int infectedCount;
+    private int protectedCount;
+
+    // Read-only views.
+    private final Map<UUID, Long> infectedView = new DeadlineView(INFECTED);
+    private final Map<UUID, Long> protectedView = new DeadlineView(PROTECTED);
+
+    // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Constructor
+     * @param expectedSize Amount of players that are expected to be tracked.
+     */
+    public PlayerStateTable(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Constructor
+     */
+    public PlayerStateTable() {
+        this(64);
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Lookup ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Find the slot of a player.
+     * @param uuid UUID of the player.
+     * @return Slot of the player or -1 if he is not tracked.
+     */
+    public int find(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+
+        int slot = hash(most, least) & mask;
+        while (status[slot] != 0) {
+            if ((status[slot] & OCCUPIED) != 0 && mostBits[slot] == most && leastBits[slot] == least)
+                return slot;
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Find the slot of a player and create it, if it doesn't exist yet.
+     * Creating a slot may rebuild the table, which changes the slots of all players.
+     * @param uuid UUID of the player.
+     * @return Slot of the player.
+     */
+    public int findOrCreate(UUID uuid) {
+        int slot = find(uuid);
+        if (slot != -1)
+            return slot;
+
+        // Rebuild table if it is too full.
+        if (size + removed + 1 > (mask + 1) * LOAD_FACTOR)
+            rebuild(size + 1 > (mask + 1) * LOAD_FACTOR / 2 ? (mask + 1) * 2 : mask + 1);
+
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+
+        // Find an empty or removed slot.
+        slot = hash(most, least) & mask;
+        while ((status[slot] & OCCUPIED) != 0)
+            slot = (slot + 1) & mask;
+
+        if ((status[slot] & REMOVED) != 0)
+            removed--;
+
+        mostBits[slot] = most;
+        leastBits[slot] = least;
+        ids[slot] = uuid;
+        handles[slot] = null;
+        infectedStrains[slot] = 0;
+        protectedStrains[slot] = 0;
+        status[slot] = OCCUPIED;
+        size++;
+
+        return slot;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Slot values ~~~~~~~~~~~~~~~~~~~~
+
+    public boolean isOccupied(int slot) {
+        return (status[slot] & OCCUPIED) != 0;
+    }
+
+    public boolean hasFlag(int slot, int flag) {
+        return (status[slot] & flag) != 0;
+    }
+
+    public UUID getId(int slot) {
+        return ids[slot];
+    }
+
+    public Player getHandle(int slot) {
+        return handles[slot];
+    }
+
+    /**
+     * Get the latest deadline of all infections of a player.
+     * @param slot Slot of the player.
+     * @return Deadline or 0 if not infected.
+     */
+    public long getInfectionDeadline(int slot) {
+        return latestDeadline(infectionDeadlines, infectedStrains[slot], slot);
+    }
+
+    /**
+     * Get the latest deadline of all protections of a player.
+     * @param slot Slot of the player.
+     * @return Deadline or 0 if not protected.
+     */
+    public long getProtectionDeadline(int slot) {
+        return latestDeadline(protectionDeadlines, protectedStrains[slot], slot);
+    }
+
+    /**
+     * Get the deadline of the infection with a strain.
+     * @param slot Slot of the player.
+     * @param strain Index of the strain.
+     * @return Deadline or 0 if not infected with the strain.
+     */
+    public long getInfectionDeadline(int slot, int strain) {
+        return (infectedStrains[slot] & (1L << strain)) != 0 ? infectionDeadlines[strain][slot] : 0;
+    }
+
+    /**
+     * Get the deadline of the protection from a strain.
+     * @param slot Slot of the player.
+     * @param strain Index of the strain.
+     * @return Deadline or 0 if not protected from the strain.
+     */
+    public long getProtectionDeadline(int slot, int strain) {
+        return (protectedStrains[slot] & (1L << strain)) != 0 ? protectionDeadlines[strain][slot] : 0;
+    }
+
+    /**
+     * Get the strains a player is infected with, including expired infections that were not cured yet.
+     */
+    public long getInfectedStrains(int slot) {
+        return infectedStrains[slot];
+    }
+
+    /**
+     * Get the strains a player is protected from, including expired protections that were not removed yet.
+     */
+    public long getProtectedStrains(int slot) {
+        return protectedStrains[slot];
+    }
+
+    /**
+     * Get the strains a player is infected with right now.
+     * @param slot Slot of the player.
+     * @param now Current tick.
+     * @return Bits of the strains whose infection did not expire yet.
+     */
+    public long getInfectedStrains(int slot, long now) {
+        return activeStrains(infectionDeadlines, infectedStrains[slot], slot, now);
+    }
+
+    /**
+     * Get the strains a player is protected from right now.
+     * @param slot Slot of the player.
+     * @param now Current tick.
+     * @return Bits of the strains whose protection did not expire yet.
+     */
+    public long getProtectedStrains(int slot, long now) {
+        return activeStrains(protectionDeadlines, protectedStrains[slot], slot, now);
+    }
+
+    /**
+     * Mark a player as infected with the default strain.
+     * @param slot Slot of the player.
+     * @param deadline Time when the infection expires.
+     */
+    public void setInfection(int slot, long deadline) {
+        setInfection(slot, 0, deadline);
+    }
+
+    /**
+     * Mark a player as infected with a strain.
+     * @param slot Slot of the player.
+     * @param strain Index of the strain.
+     * @param deadline Time when the infection expires.
+     */
+    public void setInfection(int slot, int strain, long deadline) {
+        if ((status[slot] & INFECTED) == 0)
+            infectedCount++;
+
+        infectionDeadlines = ensureColumn(infectionDeadlines, strain);
+        infectionDeadlines[strain][slot] = deadline;
+        infectedStrains[slot] |= 1L << strain;
+        status[slot] |= INFECTED;
+    }
+
+    /**
+     * Mark a player as protected from the default strain.
+     * @param slot Slot of the player.
+     * @param deadline Time when the protection expires.
+     */
+    public void setProtection(int slot, long deadline) {
+        setProtection(slot, 0, deadline);
+    }
+
+    /**
+     * Mark a player as protected from a strain.
+     * @param slot Slot of the player.
+     * @param strain Index of the strain.
+     * @param deadline Time when the protection expires.
+     */
+    public void setProtection(int slot, int strain, long deadline) {
+        if ((status[slot] & PROTECTED) == 0)
+            protectedCount++;
+
+        protectionDeadlines = ensureColumn(protectionDeadlines, strain);
+        protectionDeadlines[strain][slot] = deadline;
+        protectedStrains[slot] |= 1L << strain;
+        status[slot] |= PROTECTED;
+    }
+
+    /**
+     * Stores the handle of an online player.
+     * @param slot Slot of the player.
+     * @param player Online player.
+     */
+    public void setHandle(int slot, Player player) {
+        handles[slot] = player;
+        status[slot] |= ONLINE;
+    }
+
+    /**
+     * Removes the handle of a player that went offline. The slot is freed if nothing is left.
+     * @param slot Slot of the player.
+     */
+    public void clearHandle(int slot) {
+        handles[slot] = null;
+        status[slot] &= ~ONLINE;
+        removeIfUnused(slot);
+    }
+
+    /**
+     * Removes the infections of a player with all strains. The slot is freed if nothing is left.
+     * @param slot Slot of the player.
+     */
+    public void clearInfection(int slot) {
+        if ((status[slot] & INFECTED) == 0)
+            return;
+
+        infectedCount--;
+        infectedStrains[slot] = 0;
+        status[slot] &= ~INFECTED;
+        removeIfUnused(slot);
+    }
+
+    /**
+     * Removes the infection of a player with one strain. The slot is freed if nothing is left.
+     * @param slot Slot of the player.
+     * @param strain Index of the strain.
+     */
+    public void clearInfection(int slot, int strain) {
+        infectedStrains[slot] &= ~(1L << strain);
+        if (infectedStrains[slot] == 0)
+            clearInfection(slot);
+    }
+
+    /**
+     * Removes the protections of a player from all strains. The slot is freed if nothing is left.
+     * @param slot Slot of the player.
+     */
+    public void clearProtection(int slot) {
+        if ((status[slot] & PROTECTED) == 0)
+            return;
+
+        protectedCount--;
+        protectedStrains[slot] = 0;
+        status[slot] &= ~PROTECTED;
+        removeIfUnused(slot);
+    }
+
+    /**
+     * Removes the protection of a player from one strain. The slot is freed if nothing is left.
+     * @param slot Slot of the player.
+     * @param strain Index of the strain.
+     */
+    public void clearProtection(int slot, int strain) {
+        protectedStrains[slot] &= ~(1L << strain);
+        if (protectedStrains[slot] == 0)
+            clearProtection(slot);
+    }
+
+    /**
+     * Removes a player completely.
+     * @param slot Slot of the player.
+     */
+    public void remove(int slot) {
+        clearInfection(slot);
+        clearProtection(slot);
+        clearHandle(slot);
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Iteration ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Find the next occupied slot. Slots may be removed between two calls.
+     * @param from First slot to check.
+     * @return Next occupied slot or -1 if there is none.
+     */
+    public int nextSlot(int from) {
+        for (int slot = from; slot <= mask; slot++) {
+            if ((status[slot] & OCCUPIED) != 0)
+                return slot;
+        }
+
+        return -1;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Internal ~~~~~~~~~~~~~~~~~~~~
+
+    private void removeIfUnused(int slot) {
+        if ((status[slot] & (INFECTED | PROTECTED | ONLINE)) != 0 || (status[slot] & OCCUPIED) == 0)
+            return;
+
+        // Keep the slot marked, so probing and iteration still work.
+        ids[slot] = null;
+        handles[slot] = null;
+        status[slot] = REMOVED;
+        size--;
+        removed++;
+    }
+
+    private static long latestDeadline(long[][] deadlines, long strains, int slot) {
+        long latest = 0;
+        for (long bits = strains; bits != 0; bits &= bits - 1)
+            latest = Math.max(latest, deadlines[Long.numberOfTrailingZeros(bits)][slot]);
+
+        return latest;
+    }
+
+    private static long activeStrains(long[][] deadlines, long strains, int slot, long now) {
+        long active = strains;
+        for (long bits = strains; bits != 0; bits &= bits - 1) {
+            int strain = Long.numberOfTrailingZeros(bits);
+            if (deadlines[strain][slot] <= now)
+                active &= ~(1L << strain);
+        }
+
+        return active;
+    }
+
+    /**
+     * Adds the deadline columns up to a strain. Columns are only allocated for strains that are used.
+     */
+    private long[][] ensureColumn(long[][] deadlines, int strain) {
+        if (strain >= deadlines.length)
+            deadlines = Arrays.copyOf(deadlines, strain + 1);
+
+        if (deadlines[strain] == null)
+            deadlines[strain] = new long[mask + 1];
+
+        return deadlines;
+    }
+
+    private void allocate(int capacity) {
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+        ids = new UUID[capacity];
+        handles = new Player[capacity];
+        infectedStrains = new long[capacity];
+        protectedStrains = new long[capacity];
+        status = new int[capacity];
+        mask = capacity - 1;
+
+        // Keep the columns of the strains that were used.
+        infectionDeadlines = newColumns(infectionDeadlines, capacity);
+        protectionDeadlines = newColumns(protectionDeadlines, capacity);
+    }
+
+    private static long[][] newColumns(long[][] columns, int capacity) {
+        long[][] next = new long[columns.length][];
+        for (int strain = 0; strain < columns.length; strain++)
+            next[strain] = strain == 0 || columns[strain] != null ? new long[capacity] : null;
+
+        return next;
+    }
+
+    private void rebuild(int capacity) {
+        long[] oldMost = mostBits;
+        long[] oldLeast = leastBits;
+        UUID[] oldIds = ids;
+        Player[] oldHandles = handles;
+        long[][] oldInfection = infectionDeadlines;
+        long[][] oldProtection = protectionDeadlines;
+        long[] oldInfected = infectedStrains;
+        long[] oldProtected = protectedStrains;
+        int[] oldStatus = status;
+
+        allocate(capacity);
+        removed = 0;
+
+        for (int i = 0; i < oldStatus.length; i++) {
+            if ((oldStatus[i] & OCCUPIED) == 0)
+                continue;
+
+            int slot = hash(oldMost[i], oldLeast[i]) & mask;
+            while (status[slot] != 0)
+                slot = (slot + 1) & mask;
+
+            mostBits[slot] = oldMost[i];
+            leastBits[slot] = oldLeast[i];
+            ids[slot] = oldIds[i];
+            handles[slot] = oldHandles[i];
+            copyDeadlines(oldInfection, infectionDeadlines, i, slot);
+            copyDeadlines(oldProtection, protectionDeadlines, i, slot);
+            infectedStrains[slot] = oldInfected[i];
+            protectedStrains[slot] = oldProtected[i];
+            status[slot] = oldStatus[i];
+        }
+    }
+
+    private static void copyDeadlines(long[][] from, long[][] to, int fromSlot, int toSlot) {
+        for (int strain = 0; strain < from.length; strain++) {
+            if (from[strain] != null)
+                to[strain][toSlot] = from[strain][fromSlot];
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize)
+            capacity <<= 1;
+
+        return capacity;
+    }
+
+    private static int hash(long most, long least) {
+        long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public int size() {
+        return size;
+    }
+
+    public int getInfectedCount() {
+        return infectedCount;
+    }
+
+    public int getProtectedCount() {
+        return protectedCount;
+    }
+
+    /**
+     * Read-only view of all infected players and the time when their last infection expires.
+     */
+    public Map<UUID, Long> getInfectedView() {
+        return infectedView;
+    }
+
+    /**
+     * Read-only view of all protected players and the time when their last protection expires.
+     */
+    public Map<UUID, Long> getProtectedView() {
+        return protectedView;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Views ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Read-only map view over all slots with a certain flag.
+     */
+    private class DeadlineView extends AbstractMap<UUID, Long> {
+
+        private final int flag;
+
+        private final Set<Entry<UUID, Long>> entries = new AbstractSet<Entry<UUID, Long>>() {
+            @Override
+            public Iterator<Entry<UUID, Long>> iterator() {
+                return new Iterator<Entry<UUID, Long>>() {
+                    private int slot = nextMatching(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot != -1;
+                    }
+
+                    @Override
+                    public Entry<UUID, Long> next() {
+                        if (slot == -1)
+                            throw new NoSuchElementException();
+
+                        Entry<UUID, Long> entry = new SimpleImmutableEntry<>(ids[slot], deadline(slot));
+                        slot = nextMatching(slot + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return DeadlineView.this.size();
+            }
+        };
+
+        private DeadlineView(int flag) {
+            this.flag = flag;
+        }
+
+        private int nextMatching(int from) {
+            int slot = nextSlot(from);
+            while (slot != -1 && (status[slot] & flag) == 0)
+                slot = nextSlot(slot + 1);
+
+            return slot;
+        }
+
+        private long deadline(int slot) {
+            return flag == INFECTED ? getInfectionDeadline(slot) : getProtectionDeadline(slot);
+        }
+
+        @Override
+        public Long get(Object key) {
+            if (!(key instanceof UUID))
+                return null;
+
+            int slot = find((UUID) key);
+            return slot != -1 && (status[slot] & flag) != 0 ? deadline(slot) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return flag == INFECTED ? infectedCount : protectedCount;
+        }
+
+        @Override
+        public Set<Entry<UUID, Long>> entrySet() {
+            return entries;
+        }
+    }
+}
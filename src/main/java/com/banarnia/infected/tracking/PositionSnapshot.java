@@ -0,0 +1,300 @@
+package com.banarnia.infected.tracking;
+
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Compact copy of the positions and states of players at one point in time.
+ * It is filled on the main thread and can be read by another thread afterwards.
+ * Player handles must only be used on the main thread.
+ * The first entries are the infected players that spread the infection, followed by possible targets.
+ * Every entry has a strain set: the strains a source carries or the strains a target can still catch.
+ */
+public class PositionSnapshot {
+
+    // State flags.
+    public static final int INFECTED = 1;
+    public static final int PROTECTED = 1 << 1;
+    public static final int CREATIVE = 1 << 2;
+    public static final int ON_GROUND = 1 << 3;
+    public static final int CHANGED = 1 << 4;
+
+    // Worlds of this snapshot. Entries refer to the index in this array.
+    private UUID[] worlds = new UUID[4];
+    private int worldCount;
+
+    // Entries.
+    private int size;
+    private int sourceCount;
+    private Player[] players = new Player[16];
+    private int[] worldIndices = new int[16];
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private int[] flags = new int[16];
+    private long[] strains = new long[16];
+
+    // Epoch of the last change of a target or of the last check of a source.
+    private long[] stamps = new long[16];
+
+    // Custom value of every source, e.g. its position in a queue.
+    private int[] sourceTags = new int[16];
+
+    // Time when the snapshot was taken and its epoch.
+    private long timestamp;
+    private long epoch;
+
+    // ~~~~~~~~~~~~~~~~~~~~ Building ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Removes all entries and releases the player handles.
+     * @param timestamp Time when the new snapshot is taken.
+     */
+    public void reset(long timestamp) {
+        Arrays.fill(players, 0, size, null);
+        Arrays.fill(worlds, 0, worldCount, null);
+        this.size = 0;
+        this.sourceCount = 0;
+        this.worldCount = 0;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Adds an infected player that spreads the default strain.
+     * All sources have to be added before the first target.
+     * @param player Infected player.
+     * @param world UUID of the world.
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate.
+     * @param flags State flags.
+     * @param stamp Epoch of the last check of this source.
+     * @param tag Custom value that can be read with {@link #getSourceTag(int)}.
+     * @return Index of the entry.
+     */
+    public int addSource(Player player, UUID world, double x, double y, double z, int flags, long stamp, int tag) {
+        return addSource(player, world, x, y, z, flags, 1L, stamp, tag);
+    }
+
+    /**
+     * Adds an infected player that spreads the infection.
+     * All sources have to be added before the first target.
+     * @param player Infected player.
+     * @param world UUID of the world.
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate.
+     * @param flags State flags.
+     * @param strains Strains the player carries.
+     * @param stamp Epoch of the last check of this source.
+     * @param tag Custom value that can be read with {@link #getSourceTag(int)}.
+     * @return Index of the entry.
+     */
+    public int addSource(Player player, UUID world, double x, double y, double z, int flags, long strains, long stamp, int tag) {
+        if (size != sourceCount)
+            throw new IllegalStateException("Sources have to be added before targets.");
+
+        int index = add(player, world, x, y, z, flags, strains, stamp);
+        sourceTags[index] = tag;
+        sourceCount++;
+        return index;
+    }
+
+    /**
+     * Adds a player that may get infected with the default strain, unless he is infected or protected.
+     * @param player Player.
+     * @param world UUID of the world.
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate.
+     * @param flags State flags.
+     * @param stamp Epoch of the last change of this target.
+     * @return Index of the entry.
+     */
+    public int addTarget(Player player, UUID world, double x, double y, double z, int flags, long stamp) {
+        long strains = (flags & (INFECTED | PROTECTED)) == 0 ? 1L : 0L;
+        return add(player, world, x, y, z, flags, strains, stamp);
+    }
+
+    /**
+     * Adds every online player of a state table that can catch the default strain as a target.
+     * Their state is read from the same slot as their handle. Synchronizes on the table.
+     * @param states State table with the handles of all online players.
+     * @param now Current tick.
+     * @param tracker Tracker that stamps the targets or null if every target counts as changed.
+     * @param location Reused location.
+     */
+    public void addTargets(PlayerStateTable states, long now, MovementTracker tracker, Location location) {
+        addTargets(states, now, 1L, tracker, location);
+    }
+
+    /**
+     * Adds every online player of a state table that can catch at least one of the strains as a target.
+     * Their state is read from the same slot as their handle. Synchronizes on the table.
+     * @param states State table with the handles of all online players.
+     * @param now Current tick.
+     * @param strains Strains that are spread.
+     * @param tracker Tracker that stamps the targets or null if every target counts as changed.
+     * @param location Reused location.
+     */
+    public void addTargets(PlayerStateTable states, long now, long strains, MovementTracker tracker, Location location) {
+        addTargets(states, now, strains, false, tracker, location);
+    }
+
+    /**
+     * Adds every online player of a state table as a target. Players that can't catch any of the strains are only
+     * added, if everyone is requested, e.g. to record contacts. They don't get any strains.
+     * Their state is read from the same slot as their handle. Synchronizes on the table.
+     * @param states State table with the handles of all online players.
+     * @param now Current tick.
+     * @param strains Strains that are spread.
+     * @param everyone True to add players that can't catch any of the strains as well.
+     * @param tracker Tracker that stamps the targets or null if every target counts as changed.
+     * @param location Reused location.
+     */
+    public void addTargets(PlayerStateTable states, long now, long strains, boolean everyone, MovementTracker tracker,
+                           Location location) {
+        synchronized (states) {
+            for (int slot = states.nextSlot(0); slot != -1; slot = states.nextSlot(slot + 1)) {
+                Player player = states.getHandle(slot);
+                if (player == null)
+                    continue;
+
+                // Strains he is neither infected with nor protected from.
+                long infected = states.getInfectedStrains(slot, now);
+                long protectedFrom = states.getProtectedStrains(slot, now);
+                long susceptible = strains & ~infected & ~protectedFrom;
+                if (susceptible == 0 && !everyone)
+                    continue;
+
+                int flags = 0;
+                if (infected != 0)
+                    flags |= INFECTED;
+                if (protectedFrom != 0)
+                    flags |= PROTECTED;
+                if (player.getGameMode() == GameMode.CREATIVE)
+                    flags |= CREATIVE;
+                if (player.isOnGround())
+                    flags |= ON_GROUND;
+
+                long changedAt = tracker != null ? tracker.getChangedAt(states.getId(slot)) : 0;
+
+                player.getLocation(location);
+                add(player, location.getWorld().getUID(), location.getX(), location.getY(), location.getZ(),
+                    flags, susceptible, changedAt);
+            }
+        }
+    }
+
+    private int add(Player player, UUID world, double x, double y, double z, int flags, long strains, long stamp) {
+        // Grow arrays if needed.
+        if (size == players.length) {
+            int capacity = size * 2;
+            players = Arrays.copyOf(players, capacity);
+            worldIndices = Arrays.copyOf(worldIndices, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            this.flags = Arrays.copyOf(this.flags, capacity);
+            this.strains = Arrays.copyOf(this.strains, capacity);
+            stamps = Arrays.copyOf(stamps, capacity);
+            sourceTags = Arrays.copyOf(sourceTags, capacity);
+        }
+
+        int index = size++;
+        players[index] = player;
+        worldIndices[index] = worldIndex(world);
+        xs[index] = x;
+        ys[index] = y;
+        zs[index] = z;
+        this.flags[index] = flags;
+        this.strains[index] = strains;
+        stamps[index] = stamp;
+        return index;
+    }
+
+    /**
+     * There are only a few worlds, so a linear search is faster than a map.
+     */
+    private int worldIndex(UUID world) {
+        for (int i = 0; i < worldCount; i++) {
+            if (worlds[i].equals(world))
+                return i;
+        }
+
+        if (worldCount == worlds.length)
+            worlds = Arrays.copyOf(worlds, worldCount * 2);
+
+        worlds[worldCount] = world;
+        return worldCount++;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public int size() {
+        return size;
+    }
+
+    public int getSourceCount() {
+        return sourceCount;
+    }
+
+    public int getWorldCount() {
+        return worldCount;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(long epoch) {
+        this.epoch = epoch;
+    }
+
+    public Player getPlayer(int index) {
+        return players[index];
+    }
+
+    public int getWorldIndex(int index) {
+        return worldIndices[index];
+    }
+
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    public double getY(int index) {
+        return ys[index];
+    }
+
+    public double getZ(int index) {
+        return zs[index];
+    }
+
+    public boolean hasFlag(int index, int flag) {
+        return (flags[index] & flag) != 0;
+    }
+
+    /**
+     * Get the strains a source carries or a target can catch.
+     */
+    public long getStrains(int index) {
+        return strains[index];
+    }
+
+    public long getStamp(int index) {
+        return stamps[index];
+    }
+
+    public int getSourceTag(int index) {
+        return sourceTags[index];
+    }
+}
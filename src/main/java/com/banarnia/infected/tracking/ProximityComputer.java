@@ -0,0 +1,183 @@
+package com.banarnia.infected.tracking;
+
+import java.util.Arrays;
+
+/**
+ * Finds infection pairs in a {@link PositionSnapshot}.
+ * Sources without the {@link PositionSnapshot#CHANGED} flag only pair with targets that changed after their last check.
+ * Contacts are collected before any of these filters, so they contain everyone within the radius.
+ * Only primitive data of the snapshot is used, so the computation can run on any thread.
+ * An instance must not be used by two threads at the same time.
+ */
+public class ProximityComputer {
+
+    // One grid per world index of the snapshot. Grids without targets are dropped after every computation.
+    private SpatialGrid[] grids = new SpatialGrid[4];
+
+    // Squared radius of every strain of the current computation.
+    private double[] radiiSquared = new double[1];
+    private final double[] defaultRadius = new double[1];
+
+    /**
+     * Searches possible targets of the default strain around every source of a snapshot.
+     * @param snapshot Snapshot to check.
+     * @param firstSource Index of the first source to check.
+     * @param radius Infection radius.
+     * @param allowInAir True if players that are not on ground can get infected.
+     * @param pairs Pairs that were found are added here.
+     * @param budgetNanos Nanoseconds after which the computation stops. 0 or less for no limit.
+     * @return Index of the first source that was not checked. Equal to the amount of sources if all were checked.
+     */
+    public int compute(PositionSnapshot snapshot, int firstSource, double radius, boolean allowInAir,
+                       InfectionPairs pairs, long budgetNanos) {
+        defaultRadius[0] = radius;
+        return compute(snapshot, firstSource, defaultRadius, 1L, allowInAir, pairs, budgetNanos);
+    }
+
+    /**
+     * Searches possible targets of all strains around every source of a snapshot in one pass.
+     * The grid uses the largest radius. Every pair gets the strains that both players share and whose radius
+     * covers their distance, so more strains don't add more passes.
+     * @param snapshot Snapshot to check.
+     * @param firstSource Index of the first source to check.
+     * @param radii Infection radius of every strain, by index of the strain.
+     * @param strains Strains to check.
+     * @param allowInAir True if players that are not on ground can get infected.
+     * @param pairs Pairs that were found are added here.
+     * @param budgetNanos Nanoseconds after which the computation stops. 0 or less for no limit.
+     * @return Index of the first source that was not checked. Equal to the amount of sources if all were checked.
+     */
+    public int compute(PositionSnapshot snapshot, int firstSource, double[] radii, long strains, boolean allowInAir,
+                       InfectionPairs pairs, long budgetNanos) {
+        return compute(snapshot, firstSource, radii, strains, allowInAir, pairs, null, budgetNanos);
+    }
+
+    /**
+     * Searches possible targets of all strains around every source of a snapshot in one pass and collects contacts.
+     * @param snapshot Snapshot to check.
+     * @param firstSource Index of the first source to check.
+     * @param radii Infection radius of every strain, by index of the strain.
+     * @param strains Strains to check.
+     * @param allowInAir True if players that are not on ground can get infected.
+     * @param pairs Pairs that were found are added here.
+     * @param contacts Every target within the radius of the strains a source carries is added here without strains,
+     *                 even if he can't get infected. Null to skip contacts.
+     * @param budgetNanos Nanoseconds after which the computation stops. 0 or less for no limit.
+     * @return Index of the first source that was not checked. Equal to the amount of sources if all were checked.
+     */
+    public int compute(PositionSnapshot snapshot, int firstSource, double[] radii, long strains, boolean allowInAir,
+                       InfectionPairs pairs, InfectionPairs contacts, long budgetNanos) {
+        long start = budgetNanos > 0 ? System.nanoTime() : 0;
+        int sourceCount = snapshot.getSourceCount();
+
+        if (firstSource >= sourceCount)
+            return sourceCount;
+
+        // Largest radius of all strains.
+        if (radiiSquared.length < radii.length)
+            radiiSquared = new double[radii.length];
+
+        double radius = 0;
+        for (long bits = strains; bits != 0; bits &= bits - 1) {
+            int strain = Long.numberOfTrailingZeros(bits);
+            radiiSquared[strain] = radii[strain] * radii[strain];
+            radius = Math.max(radius, radii[strain]);
+        }
+
+        // Build one grid per world with all targets.
+        if (grids.length < snapshot.getWorldCount())
+            grids = Arrays.copyOf(grids, snapshot.getWorldCount());
+
+        for (int world = 0; world < snapshot.getWorldCount(); world++) {
+            if (grids[world] == null)
+                grids[world] = new SpatialGrid(radius);
+            else
+                grids[world].reset(radius);
+        }
+
+        for (int target = sourceCount; target < snapshot.size(); target++) {
+            // Skip players that can't get infected anyway, unless contacts are collected.
+            if (contacts == null && !canCatch(snapshot, target, strains, allowInAir))
+                continue;
+
+            grids[snapshot.getWorldIndex(target)]
+                    .insert(target, snapshot.getX(target), snapshot.getY(target), snapshot.getZ(target));
+        }
+
+        // Query the surroundings of every source.
+        int source = firstSource;
+        while (source < sourceCount) {
+            SpatialGrid grid = grids[snapshot.getWorldIndex(source)];
+            int found = grid.query(snapshot.getX(source), snapshot.getY(source), snapshot.getZ(source), radius);
+
+            // Unchanged sources only have to check targets that changed since the last check.
+            boolean changed = snapshot.hasFlag(source, PositionSnapshot.CHANGED);
+            long checkedAt = snapshot.getStamp(source);
+            long carried = snapshot.getStrains(source) & strains;
+
+            // Contacts are within the largest radius of the strains the source carries.
+            double contactRadiusSquared = 0;
+            if (contacts != null) {
+                for (long bits = carried; bits != 0; bits &= bits - 1)
+                    contactRadiusSquared = Math.max(contactRadiusSquared, radiiSquared[Long.numberOfTrailingZeros(bits)]);
+            }
+
+            for (int i = 0; i < found; i++) {
+                int target = grid.getResultId(i);
+                double distanceSquared = grid.getResultDistanceSquared(i);
+
+                // Record everyone nearby, whether he changed or can get infected or not.
+                if (contacts != null) {
+                    if (distanceSquared <= contactRadiusSquared)
+                        contacts.add(source, target, distanceSquared, 0L);
+
+                    if (!canCatch(snapshot, target, strains, allowInAir))
+                        continue;
+                }
+
+                if (!changed && snapshot.getStamp(target) <= checkedAt)
+                    continue;
+
+                // Strains that the target can catch and that reach him.
+                long shared = carried & snapshot.getStrains(target);
+                for (long bits = shared; bits != 0; bits &= bits - 1) {
+                    int strain = Long.numberOfTrailingZeros(bits);
+                    if (distanceSquared > radiiSquared[strain])
+                        shared &= ~(1L << strain);
+                }
+
+                if (shared != 0)
+                    pairs.add(source, target, distanceSquared, shared);
+            }
+
+            source++;
+
+            if (budgetNanos > 0 && System.nanoTime() - start >= budgetNanos)
+                break;
+        }
+
+        evictGrids(snapshot.getWorldCount());
+        return source;
+    }
+
+    /**
+     * Check if a target can catch any of the strains at all.
+     */
+    private static boolean canCatch(PositionSnapshot snapshot, int target, long strains, boolean allowInAir) {
+        if ((snapshot.getStrains(target) & strains) == 0 || snapshot.hasFlag(target, PositionSnapshot.CREATIVE))
+            return false;
+
+        return allowInAir || snapshot.hasFlag(target, PositionSnapshot.ON_GROUND);
+    }
+
+    /**
+     * Drops the grids of worlds that are not in the snapshot or have no targets, e.g. after a world was unloaded.
+     * @param worldCount Amount of worlds of the snapshot.
+     */
+    private void evictGrids(int worldCount) {
+        for (int world = 0; world < grids.length; world++) {
+            if (grids[world] != null && (world >= worldCount || grids[world].size() == 0))
+                grids[world] = null;
+        }
+    }
+}
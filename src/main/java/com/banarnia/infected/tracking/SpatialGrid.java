@@ -0,0 +1,238 @@
+package com.banarnia.infected.tracking;
+
+import java.util.Arrays;
+
+/**
+ * Spatial hash of positions within one world.
+ * Every entry is stored with an integer id, which is chosen by the caller (e.g. an index into an array of players).
+ * The cell size equals the query radius, so a query only has to look at the 27 neighbouring cells.
+ * The grid is meant to be reset and rebuilt once per check; all arrays are reused between rebuilds.
+ */
+public class SpatialGrid {
+
+    // Marker for empty cells and the end of a cell chain.
+    private static final int NONE = -1;
+
+    // Cell size and its inverse.
+    private double cellSize = 1.0;
+    private double inverseCellSize = 1.0;
+
+    // Entries. Entries of the same cell are linked through the next array.
+    private int size;
+    private int[] ids = new int[16];
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private int[] next = new int[16];
+
+    // Cells as open addressing table. Maps the packed cell coordinates to the first entry in that cell.
+    private long[] cellKeys = new long[32];
+    private int[] cellHeads = new int[32];
+    private int cellMask = 31;
+    private int cellCount;
+
+    // Result buffer of the last query.
+    private int resultCount;
+    private int[] resultIds = new int[16];
+    private double[] resultDistances = new double[16];
+
+    // ~~~~~~~~~~~~~~~~~~~~ Constructor ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Constructor
+     * @param cellSize Edge length of a cell. Should be the radius used for queries.
+     */
+    public SpatialGrid(double cellSize) {
+        reset(cellSize);
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Building ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Removes all entries and sets a new cell size.
+     * @param cellSize Edge length of a cell. Should be the radius used for queries.
+     */
+    public void reset(double cellSize) {
+        this.cellSize = Math.max(1.0, cellSize);
+        this.inverseCellSize = 1.0 / this.cellSize;
+        this.size = 0;
+        this.cellCount = 0;
+        this.resultCount = 0;
+
+        Arrays.fill(cellHeads, NONE);
+    }
+
+    /**
+     * Adds a position to the grid.
+     * @param id Id of the entry that will be returned by queries.
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate.
+     */
+    public void insert(int id, double x, double y, double z) {
+        // Grow entry arrays if needed.
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+
+        // Grow cell table if it is more than half full.
+        if ((cellCount + 1) * 2 > cellKeys.length)
+            growCells();
+
+        int index = size++;
+        ids[index] = id;
+        xs[index] = x;
+        ys[index] = y;
+        zs[index] = z;
+
+        // Link the entry in front of the chain of its cell.
+        long key = key(cell(x), cell(y), cell(z));
+        int slot = findSlot(key);
+        if (cellHeads[slot] == NONE) {
+            cellKeys[slot] = key;
+            cellCount++;
+        }
+
+        next[index] = cellHeads[slot];
+        cellHeads[slot] = index;
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Queries ~~~~~~~~~~~~~~~~~~~~
+
+    /**
+     * Searches all entries within a sphere around a position.
+     * Results can be read with {@link #getResultId(int)} and {@link #getResultDistanceSquared(int)}
+     * until the next query.
+     * @param x X coordinate of the center.
+     * @param y Y coordinate of the center.
+     * @param z Z coordinate of the center.
+     * @param radius Radius of the sphere. Should not be larger than the cell size.
+     * @return Amount of entries found.
+     */
+    public int query(double x, double y, double z, double radius) {
+        resultCount = 0;
+
+        if (size == 0)
+            return 0;
+
+        double radiusSquared = radius * radius;
+        int cx = cell(x);
+        int cy = cell(y);
+        int cz = cell(z);
+
+        // Check the cell of the center and all neighbours.
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    int slot = findSlot(key(cx + dx, cy + dy, cz + dz));
+
+                    for (int index = cellHeads[slot]; index != NONE; index = next[index]) {
+                        double distanceX = xs[index] - x;
+                        double distanceY = ys[index] - y;
+                        double distanceZ = zs[index] - z;
+                        double distanceSquared = distanceX * distanceX + distanceY * distanceY + distanceZ * distanceZ;
+
+                        if (distanceSquared <= radiusSquared)
+                            addResult(ids[index], distanceSquared);
+                    }
+                }
+            }
+        }
+
+        return resultCount;
+    }
+
+    /**
+     * Get the id of a result of the last query.
+     * @param index Index of the result.
+     * @return Id that was given on insertion.
+     */
+    public int getResultId(int index) {
+        return resultIds[index];
+    }
+
+    /**
+     * Get the squared distance of a result of the last query.
+     * @param index Index of the result.
+     * @return Squared distance to the center of the query.
+     */
+    public double getResultDistanceSquared(int index) {
+        return resultDistances[index];
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Internal ~~~~~~~~~~~~~~~~~~~~
+
+    private void addResult(int id, double distanceSquared) {
+        if (resultCount == resultIds.length) {
+            resultIds = Arrays.copyOf(resultIds, resultCount * 2);
+            resultDistances = Arrays.copyOf(resultDistances, resultCount * 2);
+        }
+
+        resultIds[resultCount] = id;
+        resultDistances[resultCount] = distanceSquared;
+        resultCount++;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    /**
+     * Packs cell coordinates into one key.
+     * Packing may collide for huge coordinates. That only adds candidates, because every candidate is checked by distance.
+     */
+    private static long key(int cx, int cy, int cz) {
+        return ((long) (cx & 0x1FFFFF) << 42) | ((long) (cy & 0x1FFFFF) << 21) | (cz & 0x1FFFFF);
+    }
+
+    /**
+     * Finds the slot of a key or the empty slot where it would be inserted.
+     */
+    private int findSlot(long key) {
+        int slot = mix(key) & cellMask;
+
+        while (cellHeads[slot] != NONE && cellKeys[slot] != key)
+            slot = (slot + 1) & cellMask;
+
+        return slot;
+    }
+
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private void growCells() {
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = cellHeads;
+
+        cellKeys = new long[oldKeys.length * 2];
+        cellHeads = new int[oldHeads.length * 2];
+        cellMask = cellKeys.length - 1;
+        Arrays.fill(cellHeads, NONE);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] == NONE)
+                continue;
+
+            int slot = findSlot(oldKeys[i]);
+            cellKeys[slot] = oldKeys[i];
+            cellHeads[slot] = oldHeads[i];
+        }
+    }
+
+    // ~~~~~~~~~~~~~~~~~~~~ Getter & Setter ~~~~~~~~~~~~~~~~~~~~
+
+    public int size() {
+        return size;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+}